@@ -0,0 +1,70 @@
+package jp.kshoji.android.engine;
+
+/**
+ * Maps the pointer speed to a value gain, with a precomputed table so each lookup is constant time.
+ * Slow moves get minGain for fine adjustment, fast moves get maxGain for coarse jumps.
+ * The instance is immutable, and may be shared by any number of views.
+ */
+public final class AccelerationCurve {
+	public static final int TABLE_SIZE = 256;
+	
+	private final float[] gains = new float[TABLE_SIZE];
+	private final float indexScale;
+	
+	/**
+	 * @param lowSpeed the speed up to which the gain is minGain, in dp per second
+	 * @param highSpeed the speed from which the gain is maxGain, in dp per second
+	 * @param minGain the gain for slow moves
+	 * @param maxGain the gain for fast moves
+	 * @param exponent the shape between the two speeds, 1 for linear, larger values keep the gain low longer
+	 */
+	public AccelerationCurve(float lowSpeed, float highSpeed, float minGain, float maxGain, float exponent) {
+		if (lowSpeed < 0f || highSpeed <= lowSpeed) {
+			throw new IllegalArgumentException("speeds must satisfy 0 <= lowSpeed < highSpeed");
+		}
+		if (exponent <= 0f) {
+			throw new IllegalArgumentException("exponent must be positive");
+		}
+		
+		// the last entry is highSpeed
+		indexScale = (TABLE_SIZE - 1) / highSpeed;
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			final float speed = i / indexScale;
+			float t = (speed - lowSpeed) / (highSpeed - lowSpeed);
+			if (t < 0f) {
+				t = 0f;
+			}
+			if (t > 1f) {
+				t = 1f;
+			}
+			gains[i] = minGain + (maxGain - minGain) * (float) Math.pow(t, exponent);
+		}
+	}
+	
+	/**
+	 * @param speed the pointer speed, in dp per second
+	 * @return the gain
+	 */
+	public float getGain(float speed) {
+		int index = (int) (speed * indexScale);
+		if (index >= TABLE_SIZE) {
+			index = TABLE_SIZE - 1;
+		}
+		if (index < 0) {
+			index = 0;
+		}
+		return gains[index];
+	}
+	
+	/**
+	 * @param distance the moved distance, in dp
+	 * @param elapsedMillis the time of the move
+	 * @return the gain
+	 */
+	public float getGain(float distance, long elapsedMillis) {
+		if (elapsedMillis < 1) {
+			elapsedMillis = 1;
+		}
+		return getGain(distance * 1000f / elapsedMillis);
+	}
+}
@@ -0,0 +1,342 @@
+package jp.kshoji.android.engine;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Keeps the latest timestamped events of a control in fixed size arrays. Adding an event never allocates.
+ * Each event has a time in milliseconds and a fixed number of int values, e.g. one for OvalSeekBar and two for BiaxialSeekBar.
+ * 
+ * The binary format is a little-endian int magic, followed by unsigned varints: version, channel count, event count,
+ * then for each event the time from the previous event (from 0 for the first one, zigzag encoded),
+ * and each value as the zigzag encoded difference from the same value of the previous event.
+ */
+public final class AutomationTimeline {
+	private static final int MAGIC = 0x4d545541;
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 8192;
+	
+	private final int channelCount;
+	private final long[] times;
+	private final int[] values;
+	private int nextIndex;
+	private int count;
+	
+	/**
+	 * @param channelCount the number of values in an event
+	 * @param capacity the number of events to keep, the oldest events are overwritten when full
+	 */
+	public AutomationTimeline(int channelCount, int capacity) {
+		if (channelCount < 1) {
+			throw new IllegalArgumentException("channelCount must be positive");
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.channelCount = channelCount;
+		times = new long[capacity];
+		values = new int[capacity * channelCount];
+	}
+	
+	public int getChannelCount() {
+		return channelCount;
+	}
+	
+	public int getCapacity() {
+		return times.length;
+	}
+	
+	/**
+	 * @return the number of events kept
+	 */
+	public int size() {
+		return count;
+	}
+	
+	public void clear() {
+		nextIndex = 0;
+		count = 0;
+	}
+	
+	/**
+	 * Adds the event of a single value control.
+	 * 
+	 * @param timeMillis the time, earlier times than the latest event are treated as the same time
+	 * @param value the value
+	 */
+	public void add(long timeMillis, int value) {
+		final int position = append(timeMillis);
+		values[position * channelCount] = value;
+	}
+	
+	/**
+	 * Adds the event of a two value control.
+	 * 
+	 * @param timeMillis the time, earlier times than the latest event are treated as the same time
+	 * @param value0 the first value
+	 * @param value1 the second value
+	 */
+	public void add(long timeMillis, int value0, int value1) {
+		final int position = append(timeMillis) * channelCount;
+		values[position] = value0;
+		values[position + 1] = value1;
+	}
+	
+	/**
+	 * Adds the event.
+	 * 
+	 * @param timeMillis the time, earlier times than the latest event are treated as the same time
+	 * @param source the values
+	 * @param offset the index of the first value in the source
+	 */
+	public void add(long timeMillis, int[] source, int offset) {
+		final int position = append(timeMillis);
+		System.arraycopy(source, offset, values, position * channelCount, channelCount);
+	}
+	
+	/**
+	 * @param timeMillis the time of the new event
+	 * @return the array position of the new event
+	 */
+	private int append(long timeMillis) {
+		if (count > 0) {
+			timeMillis = Math.max(timeMillis, getEndTime());
+		}
+		
+		final int position = nextIndex;
+		times[position] = timeMillis;
+		nextIndex++;
+		if (nextIndex == times.length) {
+			nextIndex = 0;
+		}
+		if (count < times.length) {
+			count++;
+		}
+		return position;
+	}
+	
+	/**
+	 * @param index 0 for the oldest event kept
+	 * @return the array position of the event
+	 */
+	private int getPosition(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("index: " + index + ", count: " + count);
+		}
+		int position = nextIndex - count + index;
+		if (position < 0) {
+			position += times.length;
+		}
+		return position;
+	}
+	
+	/**
+	 * @param index 0 for the oldest event kept
+	 * @return the time of the event
+	 */
+	public long getTime(int index) {
+		return times[getPosition(index)];
+	}
+	
+	/**
+	 * @param index 0 for the oldest event kept
+	 * @param channel the index of the value in the event
+	 * @return the value
+	 */
+	public int getValue(int index, int channel) {
+		if (channel < 0 || channel >= channelCount) {
+			throw new IndexOutOfBoundsException("channel: " + channel);
+		}
+		return values[getPosition(index) * channelCount + channel];
+	}
+	
+	/**
+	 * @param index 0 for the oldest event kept
+	 * @param destination the destination
+	 * @param offset the index of the first value in the destination
+	 */
+	public void getValues(int index, int[] destination, int offset) {
+		System.arraycopy(values, getPosition(index) * channelCount, destination, offset, channelCount);
+	}
+	
+	/**
+	 * @return the time of the oldest event, or 0 if empty
+	 */
+	public long getStartTime() {
+		return count == 0 ? 0 : getTime(0);
+	}
+	
+	/**
+	 * @return the time of the latest event, or 0 if empty
+	 */
+	public long getEndTime() {
+		return count == 0 ? 0 : getTime(count - 1);
+	}
+	
+	/**
+	 * Finds the event in effect at the time, in O(log n).
+	 * 
+	 * @param timeMillis the time
+	 * @return the index of the last event at or before the time, -1 if the time is before the first event
+	 */
+	public int indexAt(long timeMillis) {
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			if (getTime(middle) <= timeMillis) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return high;
+	}
+	
+	/**
+	 * Streams the events to the channel, oldest first. The channel is not closed.
+	 * 
+	 * @param channel the destination, e.g. a FileChannel
+	 * @throws IOException
+	 */
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		final int maxEventSize = 10 * (1 + channelCount);
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, maxEventSize));
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		
+		buffer.putInt(MAGIC);
+		putUnsignedVarint(buffer, VERSION);
+		putUnsignedVarint(buffer, channelCount);
+		putUnsignedVarint(buffer, count);
+		
+		long previousTime = 0;
+		for (int i = 0; i < count; i++) {
+			if (buffer.remaining() < maxEventSize) {
+				flush(buffer, channel);
+			}
+			
+			final int position = getPosition(i);
+			final long timeDelta = times[position] - previousTime;
+			putUnsignedVarint(buffer, (timeDelta << 1) ^ (timeDelta >> 63));
+			previousTime = times[position];
+			
+			final int valueStart = position * channelCount;
+			final int previousStart = i == 0 ? -1 : getPosition(i - 1) * channelCount;
+			for (int channelIndex = 0; channelIndex < channelCount; channelIndex++) {
+				final long previousValue = previousStart < 0 ? 0 : values[previousStart + channelIndex];
+				final long valueDelta = values[valueStart + channelIndex] - previousValue;
+				putUnsignedVarint(buffer, (valueDelta << 1) ^ (valueDelta >> 63));
+			}
+		}
+		flush(buffer, channel);
+	}
+	
+	/**
+	 * Reads the events written by {@link #writeTo(WritableByteChannel)}. The channel is not closed.
+	 * 
+	 * @param channel the source, e.g. a FileChannel
+	 * @return a new timeline just large enough for the events
+	 * @throws IOException if the data is not a timeline
+	 */
+	public static AutomationTimeline readFrom(ReadableByteChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.flip();
+		
+		fill(buffer, channel, 4 + 30);
+		if (buffer.remaining() < 4 || buffer.getInt() != MAGIC) {
+			throw new IOException("not a timeline");
+		}
+		if (getUnsignedVarint(buffer) != VERSION) {
+			throw new IOException("unsupported timeline version");
+		}
+		final long channelCount = getUnsignedVarint(buffer);
+		final long count = getUnsignedVarint(buffer);
+		if (channelCount < 1 || count < 0 || channelCount * Math.max(count, 1) > Integer.MAX_VALUE) {
+			throw new IOException("invalid timeline size");
+		}
+		
+		final AutomationTimeline timeline = new AutomationTimeline((int) channelCount, (int) Math.max(count, 1));
+		final int maxEventSize = 10 * (1 + timeline.channelCount);
+		if (buffer.capacity() < maxEventSize) {
+			final ByteBuffer largerBuffer = ByteBuffer.allocateDirect(maxEventSize);
+			largerBuffer.order(ByteOrder.LITTLE_ENDIAN);
+			largerBuffer.put(buffer);
+			largerBuffer.flip();
+			buffer = largerBuffer;
+		}
+		long time = 0;
+		for (int i = 0; i < count; i++) {
+			fill(buffer, channel, maxEventSize);
+			
+			final long timeDelta = getUnsignedVarint(buffer);
+			time += (timeDelta >>> 1) ^ -(timeDelta & 1);
+			
+			final int valueStart = timeline.append(time) * timeline.channelCount;
+			final int previousStart = i == 0 ? -1 : valueStart - timeline.channelCount;
+			for (int channelIndex = 0; channelIndex < timeline.channelCount; channelIndex++) {
+				final long valueDelta = getUnsignedVarint(buffer);
+				final int previousValue = previousStart < 0 ? 0 : timeline.values[previousStart + channelIndex];
+				timeline.values[valueStart + channelIndex] = (int) (previousValue + ((valueDelta >>> 1) ^ -(valueDelta & 1)));
+			}
+		}
+		return timeline;
+	}
+	
+	private static void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * Reads from the channel until the buffer has the bytes, or the channel ends.
+	 * 
+	 * @param buffer the buffer in the reading mode
+	 * @param channel the source
+	 * @param minRemaining the number of bytes wanted
+	 * @throws IOException
+	 */
+	private static void fill(ByteBuffer buffer, ReadableByteChannel channel, int minRemaining) throws IOException {
+		if (buffer.remaining() >= minRemaining) {
+			return;
+		}
+		
+		buffer.compact();
+		while (buffer.position() < minRemaining) {
+			if (channel.read(buffer) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+	}
+	
+	private static void putUnsignedVarint(ByteBuffer buffer, long value) {
+		while ((value & ~0x7fL) != 0) {
+			buffer.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+	
+	private static long getUnsignedVarint(ByteBuffer buffer) throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (!buffer.hasRemaining()) {
+				throw new EOFException("truncated timeline");
+			}
+			final byte b = buffer.get();
+			result |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("malformed varint");
+	}
+}
@@ -0,0 +1,125 @@
+package jp.kshoji.android.engine;
+
+/**
+ * Reads the format written by {@link CompactStateWriter}.
+ * Reading past the end of a record returns the default value, so newer readers accept older records.
+ */
+public final class CompactStateReader {
+	private final byte[] data;
+	private int position;
+	private final int end;
+	private int limit;
+	
+	/**
+	 * @param data the bytes written by {@link CompactStateWriter}
+	 */
+	public CompactStateReader(byte[] data) {
+		this.data = data;
+		position = 0;
+		end = data.length;
+		limit = end;
+	}
+	
+	/**
+	 * Starts reading a record.
+	 * 
+	 * @return the version of the record layout
+	 */
+	public int beginRecord() {
+		final int version = (int) readUnsignedVarint();
+		final long recordLength = readUnsignedVarint();
+		if (recordLength > end - position) {
+			throw new IllegalArgumentException("truncated record");
+		}
+		limit = position + (int) recordLength;
+		return version;
+	}
+	
+	/**
+	 * Skips the unread fields of the record.
+	 */
+	public void endRecord() {
+		position = limit;
+		limit = end;
+	}
+	
+	/**
+	 * Skips a whole record.
+	 */
+	public void skipRecord() {
+		beginRecord();
+		endRecord();
+	}
+	
+	/**
+	 * @return true if the record (or the data, outside records) has more fields
+	 */
+	public boolean hasRemaining() {
+		return position < limit;
+	}
+	
+	/**
+	 * @param defaultValue the default value given on writing
+	 * @return the value
+	 */
+	public int readInt(int defaultValue) {
+		if (position >= limit) {
+			return defaultValue;
+		}
+		final int encoded = (int) readUnsignedVarint();
+		return ((encoded >>> 1) ^ -(encoded & 1)) + defaultValue;
+	}
+	
+	/**
+	 * @param defaultValue the default value given on writing
+	 * @return the value
+	 */
+	public long readLong(long defaultValue) {
+		if (position >= limit) {
+			return defaultValue;
+		}
+		final long encoded = readUnsignedVarint();
+		return ((encoded >>> 1) ^ -(encoded & 1)) + defaultValue;
+	}
+	
+	/**
+	 * @param defaultValue the default value given on writing
+	 * @return the value
+	 */
+	public boolean readBoolean(boolean defaultValue) {
+		if (position >= limit) {
+			return defaultValue;
+		}
+		return readUnsignedVarint() != 0 ? !defaultValue : defaultValue;
+	}
+	
+	/**
+	 * @param defaultValue the default value given on writing
+	 * @return the value
+	 */
+	public float readFloat(float defaultValue) {
+		if (position >= limit) {
+			return defaultValue;
+		}
+		return Float.intBitsToFloat((int) readUnsignedVarint() ^ Float.floatToIntBits(defaultValue));
+	}
+	
+	/**
+	 * @return the value, treated as unsigned
+	 */
+	public long readUnsignedVarint() {
+		long value = 0;
+		int shift = 0;
+		while (true) {
+			if (position >= end || shift > 63) {
+				throw new IllegalArgumentException("truncated varint");
+			}
+			final byte b = data[position++];
+			value |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+			shift += 7;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package jp.kshoji.android.engine;
+
+/**
+ * Writes the compact state format. Every field is one varint holding the difference from its default value,
+ * so a field left at its default takes a single byte.
+ * 
+ * The fields are grouped in records, a record starts with its version and its length in bytes.
+ * Readers skip the fields they don't know, and use the default for the fields missing from older records.
+ */
+public final class CompactStateWriter {
+	private byte[] buffer = new byte[32];
+	private int length;
+	private int recordStart = -1;
+	
+	/**
+	 * Starts a record, records may not be nested.
+	 * 
+	 * @param version the version of the record layout
+	 */
+	public void beginRecord(int version) {
+		if (recordStart >= 0) {
+			throw new IllegalStateException("the previous record is not ended");
+		}
+		writeUnsignedVarint(version & 0xffffffffL);
+		recordStart = length;
+	}
+	
+	/**
+	 * Ends the record, and inserts its length before the fields.
+	 */
+	public void endRecord() {
+		if (recordStart < 0) {
+			throw new IllegalStateException("no record is started");
+		}
+		
+		final int recordLength = length - recordStart;
+		final int lengthSize = getVarintSize(recordLength);
+		ensureCapacity(length + lengthSize);
+		System.arraycopy(buffer, recordStart, buffer, recordStart + lengthSize, recordLength);
+		
+		int position = recordStart;
+		long value = recordLength;
+		while ((value & ~0x7fL) != 0) {
+			buffer[position++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position] = (byte) value;
+		
+		length += lengthSize;
+		recordStart = -1;
+	}
+	
+	/**
+	 * @param value the value
+	 * @param defaultValue the default value, must be the same on reading
+	 */
+	public void writeInt(int value, int defaultValue) {
+		final int delta = value - defaultValue;
+		writeUnsignedVarint(((delta << 1) ^ (delta >> 31)) & 0xffffffffL);
+	}
+	
+	/**
+	 * @param value the value
+	 * @param defaultValue the default value, must be the same on reading
+	 */
+	public void writeLong(long value, long defaultValue) {
+		final long delta = value - defaultValue;
+		writeUnsignedVarint((delta << 1) ^ (delta >> 63));
+	}
+	
+	/**
+	 * @param value the value
+	 * @param defaultValue the default value, must be the same on reading
+	 */
+	public void writeBoolean(boolean value, boolean defaultValue) {
+		writeUnsignedVarint(value != defaultValue ? 1 : 0);
+	}
+	
+	/**
+	 * @param value the value
+	 * @param defaultValue the default value, must be the same on reading
+	 */
+	public void writeFloat(float value, float defaultValue) {
+		writeUnsignedVarint((Float.floatToIntBits(value) ^ Float.floatToIntBits(defaultValue)) & 0xffffffffL);
+	}
+	
+	/**
+	 * @param value the value, treated as unsigned
+	 */
+	public void writeUnsignedVarint(long value) {
+		ensureCapacity(length + 10);
+		while ((value & ~0x7fL) != 0) {
+			buffer[length++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		buffer[length++] = (byte) value;
+	}
+	
+	private static int getVarintSize(long value) {
+		int size = 1;
+		while ((value & ~0x7fL) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if (buffer.length < capacity) {
+			byte[] newBuffer = new byte[Math.max(capacity, buffer.length * 2)];
+			System.arraycopy(buffer, 0, newBuffer, 0, length);
+			buffer = newBuffer;
+		}
+	}
+	
+	/**
+	 * @return the number of bytes written
+	 */
+	public int getLength() {
+		return length;
+	}
+	
+	/**
+	 * Clears the written bytes, for reusing the writer.
+	 */
+	public void reset() {
+		length = 0;
+		recordStart = -1;
+	}
+	
+	/**
+	 * @return a copy of the written bytes
+	 */
+	public byte[] toByteArray() {
+		if (recordStart >= 0) {
+			throw new IllegalStateException("the record is not ended");
+		}
+		byte[] result = new byte[length];
+		System.arraycopy(buffer, 0, result, 0, length);
+		return result;
+	}
+}
@@ -0,0 +1,40 @@
+package jp.kshoji.android.engine;
+
+/**
+ * The value mapping of the endless wheel.
+ */
+public final class ContinuousOvalMath {
+	
+	private ContinuousOvalMath() {
+	}
+	
+	/**
+	 * @param x the x position, relative to the wheel center
+	 * @param y the y position, relative to the wheel center
+	 * @param stepsPerTurn the number of steps in a turn
+	 * @param isWheelDirectionClockwise the wheel direction
+	 * @return the angle of the position as a step, from 0 to stepsPerTurn - 1
+	 */
+	public static int getAngleStep(double x, double y, int stepsPerTurn, boolean isWheelDirectionClockwise) {
+		// unit: -0.5 to 0.5
+		double unit;
+		
+		if (isWheelDirectionClockwise) {
+			double angle = Math.atan2(y, x);
+			unit = angle / (2.0 * Math.PI);
+		} else {
+			double angle = Math.atan2(y, x);
+			unit = -angle / (2.0 * Math.PI);
+		}
+		
+		// floor keeps every step the same width around zero
+		int step = (int) Math.floor(stepsPerTurn * unit);
+		if (step < 0) {
+			step += stepsPerTurn;
+		}
+		if (step >= stepsPerTurn) {
+			step -= stepsPerTurn;
+		}
+		return step;
+	}
+}
@@ -0,0 +1,102 @@
+package jp.kshoji.android.engine;
+
+/**
+ * Counts durations in power-of-two buckets of microseconds. Recording never allocates.
+ * Bucket 0 holds durations under 2 microseconds, bucket i holds [2^i, 2^(i+1)) microseconds, and the last bucket holds everything longer.
+ */
+public final class DurationHistogram {
+	public static final int BUCKET_COUNT = 32;
+	
+	private final long[] counts = new long[BUCKET_COUNT];
+	private long totalCount;
+	private long totalNanos;
+	private long maxNanos;
+	
+	/**
+	 * @param durationNanos the duration in nanoseconds
+	 */
+	public void record(long durationNanos) {
+		if (durationNanos < 0) {
+			durationNanos = 0;
+		}
+		
+		final long micros = durationNanos / 1000L;
+		int bucket = micros < 2 ? 0 : 63 - Long.numberOfLeadingZeros(micros);
+		if (bucket >= BUCKET_COUNT) {
+			bucket = BUCKET_COUNT - 1;
+		}
+		counts[bucket]++;
+		
+		totalCount++;
+		totalNanos += durationNanos;
+		if (durationNanos > maxNanos) {
+			maxNanos = durationNanos;
+		}
+	}
+	
+	/**
+	 * @param bucket the bucket index
+	 * @return the number of durations in the bucket
+	 */
+	public long getCount(int bucket) {
+		return counts[bucket];
+	}
+	
+	/**
+	 * @param bucket the bucket index
+	 * @return the exclusive upper bound of the bucket in nanoseconds
+	 */
+	public static long getUpperBoundNanos(int bucket) {
+		if (bucket >= BUCKET_COUNT - 1) {
+			return Long.MAX_VALUE;
+		}
+		return (2L << bucket) * 1000L;
+	}
+	
+	public long getTotalCount() {
+		return totalCount;
+	}
+	
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+	
+	/**
+	 * @return the mean duration in nanoseconds, or 0 if empty
+	 */
+	public long getMeanNanos() {
+		if (totalCount == 0) {
+			return 0;
+		}
+		return totalNanos / totalCount;
+	}
+	
+	/**
+	 * @param percentile from 0.0 to 100.0
+	 * @return the upper bound of the bucket containing the percentile, in nanoseconds. 0 if empty.
+	 */
+	public long getPercentileUpperBoundNanos(double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+		
+		final long threshold = (long) Math.ceil(totalCount * percentile / 100.0);
+		long accumulated = 0;
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			accumulated += counts[bucket];
+			if (accumulated >= threshold) {
+				return Math.min(getUpperBoundNanos(bucket), maxNanos);
+			}
+		}
+		return maxNanos;
+	}
+	
+	public void clear() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = 0;
+		}
+		totalCount = 0;
+		totalNanos = 0;
+		maxNanos = 0;
+	}
+}
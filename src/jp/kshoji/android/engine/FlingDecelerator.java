@@ -0,0 +1,103 @@
+package jp.kshoji.android.engine;
+
+/**
+ * Exponentially decelerating motion, advanced frame by frame without allocation.
+ * The velocity decays as v(t) = v0 * exp(-friction * t), so the whole travel converges to v0 / friction.
+ */
+public final class FlingDecelerator {
+	private double friction = 3.0;
+	private double minVelocity = 1.0;
+	
+	private double velocity;
+	private double position;
+	private long lastTimeNanos;
+	private boolean isFinished = true;
+	
+	/**
+	 * @param friction the decay rate per second, must be positive
+	 */
+	public void setFriction(double friction) {
+		if (friction <= 0.0) {
+			throw new IllegalArgumentException("friction must be positive");
+		}
+		this.friction = friction;
+	}
+	
+	public double getFriction() {
+		return friction;
+	}
+	
+	/**
+	 * @param minVelocity the motion stops below this velocity, in units per second
+	 */
+	public void setMinVelocity(double minVelocity) {
+		this.minVelocity = Math.abs(minVelocity);
+	}
+	
+	/**
+	 * Starts the motion from the position 0.
+	 * 
+	 * @param velocity the initial velocity, in units per second
+	 * @param timeNanos the start time
+	 */
+	public void start(double velocity, long timeNanos) {
+		this.velocity = velocity;
+		position = 0.0;
+		lastTimeNanos = timeNanos;
+		isFinished = Math.abs(velocity) < minVelocity;
+	}
+	
+	/**
+	 * Advances the motion to the given time.
+	 * 
+	 * @param timeNanos the current time
+	 * @return true if the position has moved
+	 */
+	public boolean computePosition(long timeNanos) {
+		if (isFinished) {
+			return false;
+		}
+		
+		final double elapsedSeconds = (timeNanos - lastTimeNanos) / 1e9;
+		if (elapsedSeconds <= 0.0) {
+			return false;
+		}
+		lastTimeNanos = timeNanos;
+		
+		// integral of the velocity over the elapsed time
+		final double decay = Math.exp(-friction * elapsedSeconds);
+		position += velocity * (1.0 - decay) / friction;
+		velocity *= decay;
+		
+		if (Math.abs(velocity) < minVelocity) {
+			isFinished = true;
+		}
+		return true;
+	}
+	
+	/**
+	 * Stops the motion at the current position.
+	 */
+	public void abort() {
+		velocity = 0.0;
+		isFinished = true;
+	}
+	
+	/**
+	 * @return the travel since {@link #start(double, long)}
+	 */
+	public double getPosition() {
+		return position;
+	}
+	
+	/**
+	 * @return the current velocity, in units per second
+	 */
+	public double getVelocity() {
+		return velocity;
+	}
+	
+	public boolean isFinished() {
+		return isFinished;
+	}
+}
@@ -0,0 +1,57 @@
+package jp.kshoji.android.engine;
+
+/**
+ * The pixel to value mapping of linear controls.
+ */
+public final class LinearAxis {
+	
+	private LinearAxis() {
+	}
+	
+	/**
+	 * Maps a touched position to a value, with the pointer centered on the position.
+	 * 
+	 * @param position the touched position, in pixel
+	 * @param length the view length, in pixel
+	 * @param pointerSize the pointer size, in pixel
+	 * @param min the min value
+	 * @param max the max value
+	 * @return the value, clamped into [min, max]
+	 */
+	public static int positionToValue(float position, int length, int pointerSize, int min, int max) {
+		float value = (position - pointerSize / 2) * max / (length - pointerSize);
+		if (value > max) {
+			value = max;
+		}
+		if (value < min) {
+			value = min;
+		}
+		return (int) value;
+	}
+	
+	/**
+	 * Maps a value to the pointer's leading edge.
+	 * 
+	 * @param value the value
+	 * @param length the view length, in pixel
+	 * @param pointerSize the pointer size, in pixel
+	 * @param min the min value
+	 * @param max the max value
+	 * @return the position of the pointer's leading edge, in pixel
+	 */
+	public static float valueToPosition(int value, int length, int pointerSize, int min, int max) {
+		return ((float) length - pointerSize) * value / (1 + max - min);
+	}
+	
+	/**
+	 * Maps a touched position on a bottom-to-top axis to a value.
+	 * 
+	 * @param position the touched position from the top, in pixel
+	 * @param length the view length, in pixel
+	 * @param max the max value, the min value is 0
+	 * @return the value
+	 */
+	public static int invertedPositionToValue(float position, int length, int max) {
+		return max - (int) (max * position / length);
+	}
+}
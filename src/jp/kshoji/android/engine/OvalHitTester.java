@@ -0,0 +1,231 @@
+package jp.kshoji.android.engine;
+
+import java.util.Arrays;
+
+/**
+ * Maps a touched position to the value of the wheel.
+ * 
+ * The touch angles where the value changes are computed once for the wheel configuration.
+ * A touch is mapped with a polynomial atan2 approximation and a binary search over these boundaries.
+ * When the approximated angle is too close to a boundary, the exact computation is used, so the result is always the same as {@link #getExactProgress(double, double)}.
+ */
+public final class OvalHitTester {
+	// the error of the approximation is less than 2e-5 radian
+	private static final double FAST_ATAN2_TOLERANCE = 1e-4;
+	
+	// the table is not built for larger ranges, the exact computation is used instead
+	public static final int MAX_TABLE_SIZE = 8192;
+	
+	private int min;
+	private int max;
+	private int wheelZeroAngle;
+	private int wheelWholeAngle;
+	private boolean isWheelDirectionClockwise;
+	
+	// sorted atan2 angles in radian, and the value of each interval between them
+	private double[] boundaryAngles = new double[0];
+	private int[] intervalValues = new int[1];
+	private int boundaryCount;
+	private boolean isTableAvailable;
+	
+	/**
+	 * Rebuilds the boundary table.
+	 * 
+	 * @param min the min value
+	 * @param max the max value
+	 * @param wheelZeroAngle the angle of the min value, in degree
+	 * @param wheelWholeAngle the angle of the whole wheel, in degree
+	 * @param isWheelDirectionClockwise the wheel direction
+	 */
+	public void setGeometry(int min, int max, int wheelZeroAngle, int wheelWholeAngle, boolean isWheelDirectionClockwise) {
+		this.min = min;
+		this.max = max;
+		this.wheelZeroAngle = wheelZeroAngle;
+		this.wheelWholeAngle = wheelWholeAngle;
+		this.isWheelDirectionClockwise = isWheelDirectionClockwise;
+		
+		final int segmentCount = max - min + 1;
+		isTableAvailable = segmentCount >= 1 && segmentCount <= MAX_TABLE_SIZE && wheelWholeAngle > 0;
+		if (!isTableAvailable) {
+			return;
+		}
+		
+		if (boundaryAngles.length < segmentCount) {
+			boundaryAngles = new double[segmentCount];
+			intervalValues = new int[segmentCount + 1];
+		}
+		
+		// the value changes where (max - min + 1) * unit crosses an integer, and where the normalized angle wraps around
+		final double offset = getAngleOffset();
+		boundaryCount = 0;
+		for (int j = 1; j < segmentCount; j++) {
+			double normalizedAngle = ((double) j / segmentCount - 0.5) * wheelWholeAngle * Math.PI / 180.0;
+			if (normalizedAngle > -Math.PI && normalizedAngle < Math.PI) {
+				boundaryAngles[boundaryCount++] = wrap(normalizedAngle - offset);
+			}
+		}
+		boundaryAngles[boundaryCount++] = wrap(Math.PI - offset);
+		Arrays.sort(boundaryAngles, 0, boundaryCount);
+		
+		// evaluate each interval at its middle
+		for (int i = 0; i <= boundaryCount; i++) {
+			double from = i == 0 ? -Math.PI : boundaryAngles[i - 1];
+			double to = i == boundaryCount ? Math.PI : boundaryAngles[i];
+			double middle = (from + to) * 0.5;
+			intervalValues[i] = getExactProgress(Math.cos(middle), Math.sin(middle));
+		}
+	}
+	
+	/**
+	 * @return the offset added to the atan2 angle before normalization, in radian
+	 */
+	private double getAngleOffset() {
+		if (isWheelDirectionClockwise) {
+			return -Math.PI * wheelZeroAngle / 180d + Math.PI * 5.0 + Math.PI * (360.0 - wheelWholeAngle) / 360.0;
+		} else {
+			return -Math.PI * wheelZeroAngle / 180d + Math.PI * 5.0 - Math.PI * (360.0 - wheelWholeAngle) / 360.0;
+		}
+	}
+	
+	/**
+	 * @param angle the angle in radian
+	 * @return the angle in the range of (-PI, PI]
+	 */
+	private static double wrap(double angle) {
+		angle = angle % (Math.PI * 2.0);
+		if (angle > Math.PI) {
+			angle -= Math.PI * 2.0;
+		} else if (angle <= -Math.PI) {
+			angle += Math.PI * 2.0;
+		}
+		return angle;
+	}
+	
+	/**
+	 * @param x the x position, relative to the wheel center
+	 * @param y the y position, relative to the wheel center
+	 * @return the value at the position
+	 */
+	public int getProgress(double x, double y) {
+		if (!isTableAvailable) {
+			return getExactProgress(x, y);
+		}
+		
+		final double angle = fastAtan2(y, x);
+		
+		// the number of boundaries less than or equal to the angle
+		int low = 0;
+		int high = boundaryCount;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (boundaryAngles[middle] <= angle) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		
+		if ((low > 0 && angle - boundaryAngles[low - 1] < FAST_ATAN2_TOLERANCE) || (low < boundaryCount && boundaryAngles[low] - angle < FAST_ATAN2_TOLERANCE)) {
+			// ambiguous
+			return getExactProgress(x, y);
+		}
+		
+		return intervalValues[low];
+	}
+	
+	/**
+	 * @param x the x position, relative to the wheel center
+	 * @param y the y position, relative to the wheel center
+	 * @return the value at the position, computed with {@link Math#atan2(double, double)}
+	 */
+	public int getExactProgress(double x, double y) {
+		int result = (int) Math.floor((1.0 + max - min) * computeUnit(x, y) + min);
+		if (result > max) {
+			result = max;
+		}
+		if (result < min) {
+			result = min;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Maps a touched position to the continuous position on the wheel, for arbitrary resolution values.
+	 * 
+	 * @param x the x position, relative to the wheel center
+	 * @param y the y position, relative to the wheel center
+	 * @return 0.0 at the start of the wheel, 1.0 at the end
+	 */
+	public double getUnit(double x, double y) {
+		final double unit = computeUnit(x, y);
+		if (unit < 0.0) {
+			return 0.0;
+		}
+		if (unit > 1.0) {
+			return 1.0;
+		}
+		return unit;
+	}
+	
+	/**
+	 * @param x the x position, relative to the wheel center
+	 * @param y the y position, relative to the wheel center
+	 * @return the position on the wheel, from 0.0 to 1.0 within the wheel angle, not clamped
+	 */
+	private double computeUnit(double x, double y) {
+		// unit: 0.0 to 1.0
+		double unit;
+		
+		// angle is radian
+		double angle;
+		
+		if (isWheelDirectionClockwise) {
+			angle = Math.atan2(y, x) - Math.PI * wheelZeroAngle / 180d + Math.PI * 5.0 + Math.PI * (360.0 - wheelWholeAngle) / 360.0;
+			while (angle > Math.PI) {
+				angle -= Math.PI * 2.0;
+			}
+			unit = angle * 360.0 / wheelWholeAngle / (2.0 * Math.PI) + 0.5;
+		} else {
+			angle = Math.atan2(y, x) - Math.PI * wheelZeroAngle / 180d + Math.PI * 5.0 - Math.PI * (360.0 - wheelWholeAngle) / 360.0;
+			while (angle > Math.PI) {
+				angle -= Math.PI * 2.0;
+			}
+			unit = 0.5 - angle * 360.0 / wheelWholeAngle / (2.0 * Math.PI);
+		}
+		
+		return unit;
+	}
+	
+	/**
+	 * Approximates {@link Math#atan2(double, double)}, with an error less than 2e-5 radian.
+	 * 
+	 * @param y the y
+	 * @param x the x
+	 * @return the angle in radian
+	 */
+	public static double fastAtan2(double y, double x) {
+		final double absX = Math.abs(x);
+		final double absY = Math.abs(y);
+		if (absX == 0.0 && absY == 0.0) {
+			return Math.atan2(y, x);
+		}
+		
+		final boolean isSteep = absY > absX;
+		final double z = isSteep ? absX / absY : absY / absX;
+		final double z2 = z * z;
+		
+		// Abramowitz and Stegun 4.4.49
+		double angle = z * (0.9998660 + z2 * (-0.3302995 + z2 * (0.1801410 + z2 * (-0.0851330 + z2 * 0.0208351))));
+		if (isSteep) {
+			angle = Math.PI * 0.5 - angle;
+		}
+		if (x < 0) {
+			angle = Math.PI - angle;
+		}
+		if (y < 0) {
+			angle = -angle;
+		}
+		return angle;
+	}
+}
@@ -0,0 +1,113 @@
+package jp.kshoji.android.engine;
+
+/**
+ * The start angle of each value's segment on the wheel, in degree.
+ * Rebuilt only when the wheel configuration changes.
+ */
+public final class OvalSegmentTable {
+	private float[] startAngles = new float[1];
+	private int segmentCount = 1;
+	private double segmentAngle;
+	private float sweepAngle;
+	private float pointerStartAngleOffset;
+	private float pointerSweepAngle;
+	
+	/**
+	 * Rebuilds the table.
+	 * 
+	 * @param min the min value
+	 * @param max the max value
+	 * @param wheelZeroAngle the angle of the min value, in degree
+	 * @param wheelWholeAngle the angle of the whole wheel, in degree
+	 * @param isWheelDirectionClockwise the wheel direction
+	 * @param separatorAngle the gap between segments, in degree
+	 * @param pointerSizeAngle the pointer size, in degree
+	 */
+	public void update(int min, int max, int wheelZeroAngle, int wheelWholeAngle, boolean isWheelDirectionClockwise, int separatorAngle, int pointerSizeAngle) {
+		segmentCount = max - min + 1;
+		if (segmentCount < 1) {
+			segmentCount = 1;
+		}
+		if (startAngles.length != segmentCount) {
+			startAngles = new float[segmentCount];
+		}
+		
+		segmentAngle = wheelWholeAngle / (1.0 + max - min);
+		for (int index = 0; index < segmentCount; index++) {
+			if (isWheelDirectionClockwise) {
+				startAngles[index] = (float) (wheelZeroAngle + segmentAngle * index);
+			} else {
+				startAngles[index] = (float) (wheelZeroAngle + wheelWholeAngle + segmentAngle * (segmentCount - 1 - index));
+			}
+		}
+		sweepAngle = (float) segmentAngle - separatorAngle;
+		
+		if (isWheelDirectionClockwise) {
+			// pointer is centered on the segment
+			pointerStartAngleOffset = (float) (segmentAngle / 2 - pointerSizeAngle / 2);
+			pointerSweepAngle = pointerSizeAngle;
+		} else {
+			pointerStartAngleOffset = 0f;
+			pointerSweepAngle = sweepAngle;
+		}
+	}
+	
+	/**
+	 * @return the start angle of each segment, indexed by (value - min). Do not modify.
+	 */
+	public float[] getStartAngles() {
+		return startAngles;
+	}
+	
+	public int getSegmentCount() {
+		return segmentCount;
+	}
+	
+	/**
+	 * @return the angle between the start of two adjacent segments, in degree
+	 */
+	public double getSegmentAngle() {
+		return segmentAngle;
+	}
+	
+	/**
+	 * @return the sweep of each segment, in degree
+	 */
+	public float getSweepAngle() {
+		return sweepAngle;
+	}
+	
+	/**
+	 * @return the offset from the segment start to the pointer start, in degree
+	 */
+	public float getPointerStartAngleOffset() {
+		return pointerStartAngleOffset;
+	}
+	
+	/**
+	 * @return the sweep of the pointer, in degree
+	 */
+	public float getPointerSweepAngle() {
+		return pointerSweepAngle;
+	}
+	
+	/**
+	 * @param fromIndex the first segment index
+	 * @param toIndex the last segment index, inclusive
+	 * @return the start angle of the arc covering the segments
+	 */
+	public float getRunStartAngle(int fromIndex, int toIndex) {
+		return Math.min(startAngles[fromIndex], startAngles[toIndex]);
+	}
+	
+	/**
+	 * @param fromIndex the first segment index
+	 * @param toIndex the last segment index, inclusive
+	 * @return the sweep of the arc covering the segments
+	 */
+	public float getRunSweepAngle(int fromIndex, int toIndex) {
+		final float fromAngle = startAngles[fromIndex];
+		final float toAngle = startAngles[toIndex];
+		return Math.abs(toAngle - fromAngle) + Math.max(sweepAngle, 0f);
+	}
+}
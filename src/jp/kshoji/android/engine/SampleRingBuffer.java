@@ -0,0 +1,91 @@
+package jp.kshoji.android.engine;
+
+/**
+ * Keeps the latest samples in a fixed size array. Adding a sample never allocates.
+ */
+public final class SampleRingBuffer {
+	private final long[] samples;
+	private int nextIndex;
+	private int count;
+	
+	/**
+	 * @param capacity the number of samples to keep
+	 */
+	public SampleRingBuffer(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		samples = new long[capacity];
+	}
+	
+	/**
+	 * Adds the sample, overwriting the oldest one when full.
+	 * 
+	 * @param sample the sample
+	 */
+	public void add(long sample) {
+		samples[nextIndex] = sample;
+		nextIndex++;
+		if (nextIndex == samples.length) {
+			nextIndex = 0;
+		}
+		if (count < samples.length) {
+			count++;
+		}
+	}
+	
+	/**
+	 * @return the number of samples kept
+	 */
+	public int getCount() {
+		return count;
+	}
+	
+	public int getCapacity() {
+		return samples.length;
+	}
+	
+	/**
+	 * @param index 0 for the oldest sample kept
+	 * @return the sample
+	 */
+	public long get(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("index: " + index + ", count: " + count);
+		}
+		int position = nextIndex - count + index;
+		if (position < 0) {
+			position += samples.length;
+		}
+		return samples[position];
+	}
+	
+	/**
+	 * @return the latest sample, or 0 if empty
+	 */
+	public long getLatest() {
+		if (count == 0) {
+			return 0;
+		}
+		return get(count - 1);
+	}
+	
+	/**
+	 * Copies the samples, oldest first.
+	 * 
+	 * @param destination the destination, at least {@link #getCount()} long
+	 * @return the number of samples copied
+	 */
+	public int copyTo(long[] destination) {
+		final int length = Math.min(count, destination.length);
+		for (int i = 0; i < length; i++) {
+			destination[i] = get(i);
+		}
+		return length;
+	}
+	
+	public void clear() {
+		nextIndex = 0;
+		count = 0;
+	}
+}
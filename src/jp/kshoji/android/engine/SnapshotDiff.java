@@ -0,0 +1,54 @@
+package jp.kshoji.android.engine;
+
+/**
+ * Compares int array snapshots.
+ */
+public final class SnapshotDiff {
+	
+	private SnapshotDiff() {
+	}
+	
+	/**
+	 * @param from the first snapshot
+	 * @param to the second snapshot
+	 * @param length the number of slots to compare
+	 * @param changedSlots the destination of the changed slot indices, in ascending order, at least length long
+	 * @return the number of changed slots
+	 */
+	public static int diff(int[] from, int[] to, int length, int[] changedSlots) {
+		int changedCount = 0;
+		for (int slot = 0; slot < length; slot++) {
+			if (from[slot] != to[slot]) {
+				changedSlots[changedCount++] = slot;
+			}
+		}
+		return changedCount;
+	}
+	
+	/**
+	 * Finds the range containing the slot, with a binary search.
+	 * 
+	 * @param offsets the first slot of each range in ascending order, followed by the total
+	 * @param rangeCount the number of ranges
+	 * @param slot the slot
+	 * @return the index of the range, -1 if out of the ranges
+	 */
+	public static int findRange(int[] offsets, int rangeCount, int slot) {
+		if (slot < 0 || slot >= offsets[rangeCount]) {
+			return -1;
+		}
+		
+		// the last range starting at or before the slot, empty ranges are skipped
+		int low = 0;
+		int high = rangeCount - 1;
+		while (low < high) {
+			final int middle = (low + high + 1) >>> 1;
+			if (offsets[middle] <= slot) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+}
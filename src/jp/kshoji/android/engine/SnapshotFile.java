@@ -0,0 +1,128 @@
+package jp.kshoji.android.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Stores int array snapshots in a memory-mapped file.
+ * Opening maps the file without reading it, and each snapshot is copied from the mapping on demand.
+ * 
+ * The layout is a header of four little-endian ints (magic, version, slot count, snapshot count), followed by the snapshots.
+ */
+public final class SnapshotFile {
+	private static final int MAGIC = 0x504e534b;
+	private static final int VERSION = 1;
+	private static final int HEADER_INTS = 4;
+	
+	private final IntBuffer data;
+	private final int slotCount;
+	private final int snapshotCount;
+	
+	private SnapshotFile(IntBuffer data, int slotCount, int snapshotCount) {
+		this.data = data;
+		this.slotCount = slotCount;
+		this.snapshotCount = snapshotCount;
+	}
+	
+	/**
+	 * Writes the snapshots, replacing the file.
+	 * 
+	 * @param file the file
+	 * @param snapshots the snapshots, each at least slotCount long
+	 * @param slotCount the number of slots in a snapshot
+	 * @throws IOException
+	 */
+	public static void write(File file, int[][] snapshots, int slotCount) throws IOException {
+		final long size = 4L * (HEADER_INTS + (long) slotCount * snapshots.length);
+		
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.setLength(size);
+			FileChannel channel = randomAccessFile.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			
+			IntBuffer intBuffer = buffer.asIntBuffer();
+			intBuffer.put(MAGIC);
+			intBuffer.put(VERSION);
+			intBuffer.put(slotCount);
+			intBuffer.put(snapshots.length);
+			for (int i = 0; i < snapshots.length; i++) {
+				intBuffer.put(snapshots[i], 0, slotCount);
+			}
+			buffer.force();
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+	
+	/**
+	 * Maps the file. The mapping stays valid after the file is closed.
+	 * 
+	 * @param file the file written by {@link #write(File, int[][], int)}
+	 * @return the snapshots
+	 * @throws IOException if the file is not a snapshot file
+	 */
+	public static SnapshotFile open(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			final long size = channel.size();
+			if (size < 4L * HEADER_INTS) {
+				throw new IOException("not a snapshot file");
+			}
+			
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			IntBuffer intBuffer = buffer.asIntBuffer();
+			
+			if (intBuffer.get(0) != MAGIC || intBuffer.get(1) != VERSION) {
+				throw new IOException("not a snapshot file");
+			}
+			final int slotCount = intBuffer.get(2);
+			final int snapshotCount = intBuffer.get(3);
+			if (slotCount < 0 || snapshotCount < 0 || 4L * (HEADER_INTS + (long) slotCount * snapshotCount) > size) {
+				throw new IOException("truncated snapshot file");
+			}
+			
+			return new SnapshotFile(intBuffer, slotCount, snapshotCount);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+	
+	public int getSlotCount() {
+		return slotCount;
+	}
+	
+	public int getSnapshotCount() {
+		return snapshotCount;
+	}
+	
+	/**
+	 * @param index the snapshot index
+	 * @param snapshot the destination, at least {@link #getSlotCount()} long
+	 */
+	public synchronized void read(int index, int[] snapshot) {
+		if (index < 0 || index >= snapshotCount) {
+			throw new IndexOutOfBoundsException("index: " + index);
+		}
+		data.position(HEADER_INTS + index * slotCount);
+		data.get(snapshot, 0, slotCount);
+	}
+	
+	/**
+	 * @param index the snapshot index
+	 * @return a new copy of the snapshot
+	 */
+	public int[] read(int index) {
+		int[] snapshot = new int[slotCount];
+		read(index, snapshot);
+		return snapshot;
+	}
+}
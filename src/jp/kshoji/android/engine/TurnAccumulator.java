@@ -0,0 +1,105 @@
+package jp.kshoji.android.engine;
+
+/**
+ * Accumulates the rotation of an endless wheel into an unbounded position.
+ * The angles are given in steps, from 0 to stepsPerTurn - 1. Each movement is unwrapped the shorter way around,
+ * so the position stays exact at any speed as long as consecutive samples are less than half a turn apart.
+ */
+public final class TurnAccumulator {
+	private int stepsPerTurn;
+	private int angle;
+	private boolean hasAngle;
+	private long position;
+	
+	/**
+	 * @param stepsPerTurn the number of steps in a turn
+	 */
+	public TurnAccumulator(int stepsPerTurn) {
+		setStepsPerTurn(stepsPerTurn);
+	}
+	
+	/**
+	 * Changes the resolution. The next {@link #update(int)} starts from its angle without moving.
+	 * 
+	 * @param stepsPerTurn the number of steps in a turn
+	 */
+	public void setStepsPerTurn(int stepsPerTurn) {
+		if (stepsPerTurn <= 0) {
+			throw new IllegalArgumentException("stepsPerTurn must be positive");
+		}
+		this.stepsPerTurn = stepsPerTurn;
+		hasAngle = false;
+	}
+	
+	public int getStepsPerTurn() {
+		return stepsPerTurn;
+	}
+	
+	/**
+	 * Sets the reference angle without moving, at the start of a gesture.
+	 * 
+	 * @param angle the angle step
+	 */
+	public void begin(int angle) {
+		this.angle = angle;
+		hasAngle = true;
+	}
+	
+	/**
+	 * Moves to the angle by the shorter way around.
+	 * 
+	 * @param angle the angle step
+	 * @return the movement in steps, from -stepsPerTurn / 2 to stepsPerTurn / 2
+	 */
+	public int update(int angle) {
+		if (!hasAngle) {
+			begin(angle);
+			return 0;
+		}
+		
+		int delta = angle - this.angle;
+		final int halfTurn = stepsPerTurn / 2;
+		if (delta > halfTurn) {
+			delta -= stepsPerTurn;
+		} else if (delta < -halfTurn) {
+			delta += stepsPerTurn;
+		}
+		
+		this.angle = angle;
+		position += delta;
+		return delta;
+	}
+	
+	/**
+	 * Moves the position without changing the reference angle, e.g. by a fling.
+	 * 
+	 * @param delta the movement in steps
+	 */
+	public void move(long delta) {
+		position += delta;
+	}
+	
+	/**
+	 * @return the position in steps
+	 */
+	public long getPosition() {
+		return position;
+	}
+	
+	/**
+	 * @param position the position in steps
+	 */
+	public void setPosition(long position) {
+		this.position = position;
+	}
+	
+	/**
+	 * @return the number of whole turns, rounded toward negative infinity
+	 */
+	public long getRevolutions() {
+		if (position >= 0) {
+			return position / stepsPerTurn;
+		}
+		return -((-position - 1) / stepsPerTurn) - 1;
+	}
+}
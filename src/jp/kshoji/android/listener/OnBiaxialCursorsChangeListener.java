@@ -0,0 +1,19 @@
+package jp.kshoji.android.listener;
+
+import jp.kshoji.android.view.BiaxialSeekBar;
+
+public interface OnBiaxialCursorsChangeListener {
+
+	/**
+	 * Called on the UI thread at most once per frame, with every active cursor.
+	 * The arrays are reused, read them only during the call.
+	 * 
+	 * @param biaxialSeekBar the view
+	 * @param pointerIds the pointer id of each cursor
+	 * @param progressX the x progress of each cursor
+	 * @param progressY the y progress of each cursor
+	 * @param cursorCount the number of active cursors, 0 when every pointer is released
+	 */
+	void onCursorsChanged(BiaxialSeekBar biaxialSeekBar, int[] pointerIds, int[] progressX, int[] progressY, int cursorCount);
+	
+}
@@ -0,0 +1,18 @@
+package jp.kshoji.android.listener;
+
+import android.view.View;
+
+public interface OnDrawMetricsListener {
+
+	/**
+	 * Called on the UI thread after each measured onDraw.
+	 * 
+	 * @param view the view
+	 * @param drawDurationNanos the onDraw duration
+	 * @param drawCallCount the number of canvas draw calls
+	 * @param touchToDrawMillis the time from the latest touch event to the end of this draw, or -1 if no touch happened since the previous draw
+	 * @param allocationCount the number of objects allocated on the UI thread during onDraw, or -1 if allocation counting is disabled
+	 */
+	void onDrawMeasured(View view, long drawDurationNanos, int drawCallCount, long touchToDrawMillis, long allocationCount);
+	
+}
@@ -0,0 +1,9 @@
+package jp.kshoji.android.listener;
+
+import jp.kshoji.android.view.OvalSeekBar;
+
+public interface OnFineProgressChangeListener {
+
+	void onFineProgressChanged(OvalSeekBar ovalSeekBar, float progress, boolean fromUser);
+	
+}
@@ -0,0 +1,13 @@
+package jp.kshoji.android.listener;
+
+import jp.kshoji.android.view.OvalKnobBank;
+
+public interface OnOvalKnobBankChangeListener {
+
+	void onStartTrackingTouch(OvalKnobBank ovalKnobBank, int knobIndex);
+
+	void onStopTrackingTouch(OvalKnobBank ovalKnobBank, int knobIndex);
+
+	void onProgressChanged(OvalKnobBank ovalKnobBank, int knobIndex, int progress, boolean fromUser);
+	
+}
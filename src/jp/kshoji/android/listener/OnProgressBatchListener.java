@@ -0,0 +1,20 @@
+package jp.kshoji.android.listener;
+
+import android.view.View;
+
+public interface OnProgressBatchListener {
+
+	/**
+	 * Called on the UI thread with the values received since the last call.
+	 * The arrays are reused, read them only during the call.
+	 * 
+	 * @param view the view
+	 * @param values the values, valuesPerSample values for each sample
+	 * @param eventTimes the time of each sample, in {@link android.os.SystemClock#uptimeMillis()} time base
+	 * @param sampleCount the number of samples
+	 * @param valuesPerSample 1 for single axis views, 2 for x and y
+	 * @param fromUser true if the values came from touch events
+	 */
+	void onProgressBatch(View view, int[] values, long[] eventTimes, int sampleCount, int valuesPerSample, boolean fromUser);
+	
+}
@@ -0,0 +1,16 @@
+package jp.kshoji.android.listener;
+
+import jp.kshoji.android.view.ContinuousOvalSeekBar;
+
+public interface OnProgressDeltaListener {
+
+	/**
+	 * Called on the UI thread at most once per frame, with the movement accumulated since the last call.
+	 * 
+	 * @param continuousOvalSeekBar the view
+	 * @param delta the movement, in values
+	 * @param isFling true if the movement came from the inertial scrolling after the touch was released
+	 */
+	void onProgressDelta(ContinuousOvalSeekBar continuousOvalSeekBar, int delta, boolean isFling);
+	
+}
@@ -0,0 +1,192 @@
+package jp.kshoji.android.view;
+
+import jp.kshoji.android.engine.AutomationTimeline;
+
+/**
+ * Plays an {@link AutomationTimeline} back to a control once per frame. Playing never allocates.
+ * A {@link SceneControl} receives the values of the latest event passed in each frame,
+ * and a {@link ContinuousOvalSeekBar} is turned by the sum of the movements passed in each frame.
+ * 
+ * Playing stops when the number of values of the control no longer matches the timeline, e.g. with {@link OvalKnobBank#setKnobCount(int)}.
+ * Must be used on the UI thread.
+ */
+public final class AutomationPlayer {
+	private final AutomationTimeline timeline;
+	private final SceneControl control;
+	private final ContinuousOvalSeekBar continuousOvalSeekBar;
+	private final int[] values;
+	
+	private boolean isPlaying;
+	private boolean isLooping;
+	// the playback position from the first event in milliseconds, when the playback started or was seeked
+	private long basePosition;
+	// the frame time of basePosition, -1 until the first frame
+	private long baseFrameTimeNanos = -1;
+	private long position;
+	// the index of the next event to play
+	private int nextIndex;
+	private final FrameClock.FrameCallback frameCallback = new FrameClock.FrameCallback() {
+		
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			playFrame(frameTimeNanos);
+		}
+	};
+	
+	/**
+	 * @param timeline the events, must have as many channels as the control has values
+	 * @param control the control to play to
+	 */
+	public AutomationPlayer(AutomationTimeline timeline, SceneControl control) {
+		if (timeline.getChannelCount() != control.getSceneValueCount()) {
+			throw new IllegalArgumentException("the timeline must have " + control.getSceneValueCount() + " channels");
+		}
+		this.timeline = timeline;
+		this.control = control;
+		continuousOvalSeekBar = null;
+		values = new int[timeline.getChannelCount()];
+	}
+	
+	/**
+	 * @param timeline the movements recorded with {@link ContinuousOvalSeekBar#setAutomationTimeline(AutomationTimeline)}
+	 * @param continuousOvalSeekBar the wheel to turn
+	 */
+	public AutomationPlayer(AutomationTimeline timeline, ContinuousOvalSeekBar continuousOvalSeekBar) {
+		if (timeline.getChannelCount() != 1) {
+			throw new IllegalArgumentException("the timeline must have one channel");
+		}
+		this.timeline = timeline;
+		control = null;
+		this.continuousOvalSeekBar = continuousOvalSeekBar;
+		values = new int[1];
+	}
+	
+	/**
+	 * @param isLooping true to restart from the first event after the last event
+	 */
+	public void setLooping(boolean isLooping) {
+		this.isLooping = isLooping;
+	}
+	
+	public void play() {
+		if (isPlaying) {
+			return;
+		}
+		isPlaying = true;
+		basePosition = position;
+		baseFrameTimeNanos = -1;
+		FrameClock.getInstance().postFrameCallback(frameCallback);
+	}
+	
+	/**
+	 * Stops at the current position.
+	 */
+	public void pause() {
+		if (!isPlaying) {
+			return;
+		}
+		isPlaying = false;
+		FrameClock.getInstance().removeFrameCallback(frameCallback);
+	}
+	
+	public boolean isPlaying() {
+		return isPlaying;
+	}
+	
+	/**
+	 * @return the playback position from the first event, in milliseconds
+	 */
+	public long getPosition() {
+		return position;
+	}
+	
+	/**
+	 * @return the length from the first event to the last event, in milliseconds
+	 */
+	public long getDuration() {
+		return timeline.getEndTime() - timeline.getStartTime();
+	}
+	
+	/**
+	 * Moves the playback position in O(log n).
+	 * A {@link SceneControl} shows the values in effect at the position at once, the movements of a {@link ContinuousOvalSeekBar} before the position are skipped.
+	 * 
+	 * @param position the position from the first event, in milliseconds
+	 */
+	public void seekTo(long position) {
+		this.position = Math.max(0, Math.min(position, getDuration()));
+		basePosition = this.position;
+		baseFrameTimeNanos = -1;
+		
+		final int index = timeline.indexAt(timeline.getStartTime() + this.position);
+		nextIndex = index + 1;
+		if (control != null && index >= 0 && control.getSceneValueCount() == values.length) {
+			timeline.getValues(index, values, 0);
+			control.applySceneValues(values, 0);
+		}
+	}
+	
+	/**
+	 * Plays the events passed since the previous frame.
+	 * 
+	 * @param frameTimeNanos the frame time
+	 */
+	private void playFrame(long frameTimeNanos) {
+		if (!isPlaying) {
+			return;
+		}
+		if (control != null && control.getSceneValueCount() != values.length) {
+			// the timeline no longer matches the control
+			isPlaying = false;
+			return;
+		}
+		if (baseFrameTimeNanos < 0) {
+			baseFrameTimeNanos = frameTimeNanos;
+		}
+		
+		final long duration = getDuration();
+		position = basePosition + (frameTimeNanos - baseFrameTimeNanos) / 1000000L;
+		playUntil(timeline.getStartTime() + Math.min(position, duration));
+		
+		if (position >= duration) {
+			if (!isLooping || timeline.size() == 0) {
+				position = duration;
+				isPlaying = false;
+				return;
+			}
+			
+			// restart from the first event in the next frame
+			position = 0;
+			basePosition = 0;
+			baseFrameTimeNanos = -1;
+			nextIndex = 0;
+		}
+		
+		FrameClock.getInstance().postFrameCallback(frameCallback);
+	}
+	
+	/**
+	 * @param timeMillis the timeline time to play the events until, inclusive
+	 */
+	private void playUntil(long timeMillis) {
+		final int size = timeline.size();
+		if (nextIndex >= size || timeline.getTime(nextIndex) > timeMillis) {
+			return;
+		}
+		
+		if (control != null) {
+			// only the latest values matter
+			final int index = timeline.indexAt(timeMillis);
+			timeline.getValues(index, values, 0);
+			control.applySceneValues(values, 0);
+			nextIndex = index + 1;
+		} else {
+			int delta = 0;
+			while (nextIndex < size && timeline.getTime(nextIndex) <= timeMillis) {
+				delta += timeline.getValue(nextIndex, 0);
+				nextIndex++;
+			}
+			continuousOvalSeekBar.moveBy(delta);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package jp.kshoji.android.view;
+
+import jp.kshoji.android.engine.AutomationTimeline;
+
+/**
+ * Records the values of a {@link SceneControl} into an {@link AutomationTimeline} once per frame.
+ * An event is added only when a value has changed, with the frame time in milliseconds. Recording never allocates.
+ * 
+ * To record the movement of {@link ContinuousOvalSeekBar}, use {@link ContinuousOvalSeekBar#setAutomationTimeline(AutomationTimeline)} instead.
+ * Recording stops when the number of values of the control changes, e.g. with {@link OvalKnobBank#setKnobCount(int)}.
+ * Must be used on the UI thread.
+ */
+public final class AutomationRecorder {
+	private final SceneControl control;
+	private final AutomationTimeline timeline;
+	private final int[] currentValues;
+	private final int[] lastValues;
+	private boolean isRecording;
+	private boolean hasLastValues;
+	private final FrameClock.FrameCallback frameCallback = new FrameClock.FrameCallback() {
+		
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			recordFrame(frameTimeNanos);
+		}
+	};
+	
+	/**
+	 * @param control the control to record
+	 * @param timeline the destination, must have as many channels as the control has values
+	 */
+	public AutomationRecorder(SceneControl control, AutomationTimeline timeline) {
+		if (timeline.getChannelCount() != control.getSceneValueCount()) {
+			throw new IllegalArgumentException("the timeline must have " + control.getSceneValueCount() + " channels");
+		}
+		this.control = control;
+		this.timeline = timeline;
+		currentValues = new int[timeline.getChannelCount()];
+		lastValues = new int[timeline.getChannelCount()];
+	}
+	
+	public AutomationTimeline getTimeline() {
+		return timeline;
+	}
+	
+	/**
+	 * Starts recording, the values at the first frame are always recorded.
+	 */
+	public void start() {
+		if (isRecording) {
+			return;
+		}
+		isRecording = true;
+		hasLastValues = false;
+		FrameClock.getInstance().postFrameCallback(frameCallback);
+	}
+	
+	public void stop() {
+		if (!isRecording) {
+			return;
+		}
+		isRecording = false;
+		FrameClock.getInstance().removeFrameCallback(frameCallback);
+	}
+	
+	public boolean isRecording() {
+		return isRecording;
+	}
+	
+	/**
+	 * @param frameTimeNanos the frame time
+	 */
+	private void recordFrame(long frameTimeNanos) {
+		if (!isRecording) {
+			return;
+		}
+		
+		if (control.getSceneValueCount() != currentValues.length) {
+			// the timeline can not hold the new values
+			isRecording = false;
+			return;
+		}
+		
+		control.captureSceneValues(currentValues, 0);
+		boolean isChanged = !hasLastValues;
+		for (int i = 0; i < currentValues.length && !isChanged; i++) {
+			isChanged = currentValues[i] != lastValues[i];
+		}
+		
+		if (isChanged) {
+			timeline.add(frameTimeNanos / 1000000L, currentValues, 0);
+			System.arraycopy(currentValues, 0, lastValues, 0, currentValues.length);
+			hasLastValues = true;
+		}
+		
+		FrameClock.getInstance().postFrameCallback(frameCallback);
+	}
+}
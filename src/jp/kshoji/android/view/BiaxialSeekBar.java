@@ -1,19 +1,30 @@
 package jp.kshoji.android.view;
 
+import jp.kshoji.android.engine.CompactStateReader;
+import jp.kshoji.android.engine.CompactStateWriter;
+import jp.kshoji.android.engine.AccelerationCurve;
+import jp.kshoji.android.engine.LinearAxis;
+import jp.kshoji.android.listener.OnBiaxialCursorsChangeListener;
 import jp.kshoji.android.listener.OnBiaxialSeekBarChangeListener;
+import jp.kshoji.android.listener.OnProgressBatchListener;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.RectF;
-import android.os.Parcel;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
 import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
 
-public class BiaxialSeekBar extends View {
+public class BiaxialSeekBar extends View implements CompactStateControl, SceneControl {
+	public static final int MAX_CURSOR_COUNT = 10;
+	private static final int STATE_VERSION = 1;
+	
 	private int x_min;
 	private int x_max;
 	private int x_progress;
@@ -25,8 +36,68 @@ public class BiaxialSeekBar extends View {
 	private Paint pointerPaint;
 
 	private RectF pointerRectangle = new RectF();
+	private final RectF movedPointerRectangle = new RectF();
+	private final RectF dirtyRectangle = new RectF();
+	private boolean isBackgroundCacheEnabled;
+	private Drawable sourceBackground;
+	private Bitmap backgroundCacheBitmap;
+	private boolean isUpdatingBackgroundCache;
 	private boolean onPointer;
+	
+	// relative dragging with the acceleration curve, enabled when accelerationCurve is set
+	private AccelerationCurve accelerationCurve;
+	private double acceleratedX;
+	private double acceleratedY;
+	private float lastTouchX;
+	private float lastTouchY;
+	private long lastTouchTime;
+	
+	// cursors indexed by pointer id, the cursor 0 is the pointer itself
+	private int maxCursorCount;
+	private final int[] cursorX = new int[MAX_CURSOR_COUNT];
+	private final int[] cursorY = new int[MAX_CURSOR_COUNT];
+	private final boolean[] isCursorActive = new boolean[MAX_CURSOR_COUNT];
+	private final RectF cursorRectangle = new RectF();
+	private OnBiaxialCursorsChangeListener onBiaxialCursorsChangeListener;
+	private boolean isCursorFrameScheduled;
+	private final int[] dispatchPointerIds = new int[MAX_CURSOR_COUNT];
+	private final int[] dispatchCursorX = new int[MAX_CURSOR_COUNT];
+	private final int[] dispatchCursorY = new int[MAX_CURSOR_COUNT];
+	private final FrameClock.FrameCallback cursorFrameCallback = new FrameClock.FrameCallback() {
+		
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			dispatchCursors();
+		}
+	};
 	private OnBiaxialSeekBarChangeListener onBiaxialSeekBarChangeListener;
+	private DrawMetrics drawMetrics;
+	private final ListenerThrottle listenerThrottle = new ListenerThrottle(this, new Runnable() {
+		
+		@Override
+		public void run() {
+			if (onBiaxialSeekBarChangeListener != null) {
+				onBiaxialSeekBarChangeListener.onProgressChanged(BiaxialSeekBar.this, getXProgress(), getYProgress(), true);
+			}
+		}
+	});
+	private OnProgressBatchListener onProgressBatchListener;
+	private final TouchSampleBuffer touchSamples = new TouchSampleBuffer(2);
+	private final CoalescedValueFeed progressFeed = new CoalescedValueFeed(new CoalescedValueFeed.Target() {
+		
+		@Override
+		public void onValuesCoalesced(int[] values, long[] eventTimes, int sampleCount) {
+			final int progressX = values[(sampleCount - 1) * 2];
+			final int progressY = values[(sampleCount - 1) * 2 + 1];
+			if (progressX != x_progress || progressY != y_progress) {
+				movePointer(progressX, progressY);
+			}
+			
+			if (onProgressBatchListener != null) {
+				onProgressBatchListener.onProgressBatch(BiaxialSeekBar.this, values, eventTimes, sampleCount, 2, false);
+			}
+		}
+	}, 2);
 	
 	public BiaxialSeekBar(Context context) {
 		super(context);
@@ -54,11 +125,10 @@ public class BiaxialSeekBar extends View {
 		y_progress = typedArray.getInt(R.styleable.BiaxialSeekBar_y_progress, 50);
 		pointerSize = typedArray.getDimensionPixelSize(R.styleable.BiaxialSeekBar_pointerSize, 44);
 		pointerColor = typedArray.getColor(R.styleable.BiaxialSeekBar_pointerColor, Color.BLUE);
+		setMaxCursorCount(typedArray.getInt(R.styleable.BiaxialSeekBar_maxCursorCount, 1));
+		typedArray.recycle();
 		
-		pointerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		pointerPaint.setStyle(Paint.Style.FILL);
-		pointerPaint.setColor(pointerColor);
-		pointerPaint.setStrokeWidth(pointerSize);
+		pointerPaint = PaintCache.getFillPaint(pointerColor);
 	}
 	
 	/*
@@ -66,33 +136,441 @@ public class BiaxialSeekBar extends View {
 	 * @see android.view.View#onDraw(android.graphics.Canvas)
 	 */
 	@Override
-	protected synchronized void onDraw(Canvas canvas) {
-		pointerRectangle.left = ((float)getWidth() - pointerSize) * x_progress / (1 + x_max - x_min);
-		pointerRectangle.top = ((float)getHeight() - pointerSize) * y_progress / (1 + y_max - y_min);
-		pointerRectangle.right = pointerRectangle.left + (float)pointerSize;
-		pointerRectangle.bottom = pointerRectangle.top + (float)pointerSize;
+	protected void onDraw(Canvas canvas) {
+		final DrawMetrics metrics = drawMetrics;
+		if (metrics != null) {
+			metrics.beginDraw();
+		}
+		
+		computePointerRectangle(pointerRectangle, x_progress, y_progress);
 
 		canvas.drawOval(pointerRectangle, pointerPaint);
+		int drawCallCount = 1;
+		
+		// the other cursors, with the same paint
+		for (int id = 1; id < maxCursorCount; id++) {
+			if (isCursorActive[id]) {
+				computePointerRectangle(cursorRectangle, cursorX[id], cursorY[id]);
+				canvas.drawOval(cursorRectangle, pointerPaint);
+				drawCallCount++;
+			}
+		}
+		
+		if (metrics != null) {
+			metrics.countDrawCalls(drawCallCount);
+			metrics.endDraw(this);
+		}
 	}
-
+	
+	/**
+	 * Computes the pointer bounds for the progress.
+	 * 
+	 * @param rectangle the destination
+	 * @param progressX the x progress
+	 * @param progressY the y progress
+	 */
+	private void computePointerRectangle(RectF rectangle, int progressX, int progressY) {
+		rectangle.left = LinearAxis.valueToPosition(progressX, getWidth(), pointerSize, x_min, x_max);
+		rectangle.top = LinearAxis.valueToPosition(progressY, getHeight(), pointerSize, y_min, y_max);
+		rectangle.right = rectangle.left + (float)pointerSize;
+		rectangle.bottom = rectangle.top + (float)pointerSize;
+	}
+	
+	/**
+	 * Moves the pointer, and invalidates only the region covered by the old and the new pointer.
+	 * 
+	 * @param progressX the new x progress
+	 * @param progressY the new y progress
+	 */
+	private void movePointer(int progressX, int progressY) {
+		invalidatePointer(x_progress, y_progress, progressX, progressY);
+		
+		x_progress = progressX;
+		y_progress = progressY;
+	}
+	
+	/**
+	 * Invalidates the region covered by the pointer at the old and the new progress.
+	 * 
+	 * @param fromX the old x progress
+	 * @param fromY the old y progress
+	 * @param toX the new x progress
+	 * @param toY the new y progress
+	 */
+	private void invalidatePointer(int fromX, int fromY, int toX, int toY) {
+		computePointerRectangle(dirtyRectangle, fromX, fromY);
+		computePointerRectangle(movedPointerRectangle, toX, toY);
+		dirtyRectangle.union(movedPointerRectangle);
+		
+		// include the anti-aliased edge
+		invalidate((int) Math.floor(dirtyRectangle.left) - 1, (int) Math.floor(dirtyRectangle.top) - 1, (int) Math.ceil(dirtyRectangle.right) + 1, (int) Math.ceil(dirtyRectangle.bottom) + 1);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onSizeChanged(int, int, int, int)
+	 */
 	@Override
-	public boolean onTouchEvent(MotionEvent event) {
-		float x = event.getX() - pointerSize / 2;
-		float y = event.getY() - pointerSize / 2;
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		updateBackgroundCache();
+	}
+	
+	/**
+	 * @param isBackgroundCacheEnabled if true, the background drawable is rendered once into a bitmap for each view size
+	 */
+	public void setBackgroundCacheEnabled(boolean isBackgroundCacheEnabled) {
+		this.isBackgroundCacheEnabled = isBackgroundCacheEnabled;
+		updateBackgroundCache();
+	}
+	
+	/**
+	 * Replaces the background with its rendered bitmap, or restores the original background.
+	 */
+	@SuppressWarnings("deprecation")
+	private void updateBackgroundCache() {
+		Bitmap previousBitmap = backgroundCacheBitmap;
+		
+		if (isBackgroundCacheEnabled) {
+			if (sourceBackground == null) {
+				sourceBackground = getBackground();
+			}
+			if (sourceBackground == null || getWidth() <= 0 || getHeight() <= 0) {
+				return;
+			}
+			
+			backgroundCacheBitmap = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+			Canvas backgroundCanvas = new Canvas(backgroundCacheBitmap);
+			sourceBackground.setBounds(0, 0, getWidth(), getHeight());
+			sourceBackground.draw(backgroundCanvas);
+			isUpdatingBackgroundCache = true;
+			setBackgroundDrawable(new BitmapDrawable(getResources(), backgroundCacheBitmap));
+			isUpdatingBackgroundCache = false;
+		} else {
+			if (sourceBackground != null) {
+				isUpdatingBackgroundCache = true;
+				setBackgroundDrawable(sourceBackground);
+				isUpdatingBackgroundCache = false;
+				sourceBackground = null;
+			}
+			backgroundCacheBitmap = null;
+		}
+		
+		if (previousBitmap != null) {
+			previousBitmap.recycle();
+		}
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#setBackgroundDrawable(android.graphics.drawable.Drawable)
+	 */
+	@SuppressWarnings("deprecation")
+	@Override
+	public void setBackgroundDrawable(Drawable background) {
+		super.setBackgroundDrawable(background);
+		if (isUpdatingBackgroundCache || !isBackgroundCacheEnabled) {
+			return;
+		}
+		
+		// the app has replaced the background, the cache is rendered from the new one
+		sourceBackground = background;
+		if (background != null) {
+			updateBackgroundCache();
+		} else if (backgroundCacheBitmap != null) {
+			backgroundCacheBitmap.recycle();
+			backgroundCacheBitmap = null;
+		}
+	}
+
+	/**
+	 * @param x the touched x position
+	 * @return the x progress
+	 */
+	private int getTouchedXProgress(float x) {
+		return LinearAxis.positionToValue(x, getWidth(), pointerSize, x_min, x_max);
+	}
+	
+	/**
+	 * @param y the touched y position
+	 * @return the y progress
+	 */
+	private int getTouchedYProgress(float y) {
+		return LinearAxis.positionToValue(y, getHeight(), pointerSize, y_min, y_max);
+	}
+	
+	/**
+	 * Moves the progress by the distance of each sample in the event multiplied by the gain for the pointer speed.
+	 * The accelerated progress is stored into acceleratedX and acceleratedY.
+	 * 
+	 * @param event the move event
+	 */
+	private void updateAcceleratedProgress(MotionEvent event) {
+		if (onProgressBatchListener != null) {
+			touchSamples.clear();
+		}
+		
+		final float density = getResources().getDisplayMetrics().density;
+		final double valuesPerPixelX = (double) (x_max - x_min) / Math.max(getWidth() - pointerSize, 1);
+		final double valuesPerPixelY = (double) (y_max - y_min) / Math.max(getHeight() - pointerSize, 1);
+		
+		final int historySize = event.getHistorySize();
+		for (int h = 0; h <= historySize; h++) {
+			final float x = h < historySize ? event.getHistoricalX(h) : event.getX();
+			final float y = h < historySize ? event.getHistoricalY(h) : event.getY();
+			final long eventTime = h < historySize ? event.getHistoricalEventTime(h) : event.getEventTime();
+			
+			final float deltaX = x - lastTouchX;
+			final float deltaY = y - lastTouchY;
+			final float gain = accelerationCurve.getGain((float) Math.sqrt(deltaX * deltaX + deltaY * deltaY) / density, eventTime - lastTouchTime);
+			acceleratedX = Math.max(x_min, Math.min(x_max, acceleratedX + deltaX * valuesPerPixelX * gain));
+			acceleratedY = Math.max(y_min, Math.min(y_max, acceleratedY + deltaY * valuesPerPixelY * gain));
+			
+			lastTouchX = x;
+			lastTouchY = y;
+			lastTouchTime = eventTime;
+			
+			if (onProgressBatchListener != null) {
+				touchSamples.add(eventTime, (int) acceleratedX, (int) acceleratedY);
+			}
+		}
+	}
+	
+	/**
+	 * Enables the relative dragging. The pointer moves by the dragged distance multiplied by the gain for the pointer speed,
+	 * instead of following the pointer.
+	 * 
+	 * @param accelerationCurve the curve, may be shared with other views. null to follow the pointer
+	 */
+	public void setAccelerationCurve(AccelerationCurve accelerationCurve) {
+		this.accelerationCurve = accelerationCurve;
+	}
+	
+	/**
+	 * Delivers the progress of every sample in the event, including the historical samples, in one batch.
+	 * 
+	 * @param event the move event
+	 */
+	private void dispatchTouchSamples(MotionEvent event) {
+		// the relative dragging has already recorded the samples
+		if (accelerationCurve == null) {
+			touchSamples.clear();
+			final int historySize = event.getHistorySize();
+			for (int h = 0; h < historySize; h++) {
+				touchSamples.add(event.getHistoricalEventTime(h), getTouchedXProgress(event.getHistoricalX(h)), getTouchedYProgress(event.getHistoricalY(h)));
+			}
+			touchSamples.add(event.getEventTime(), x_progress, y_progress);
+		}
+		
+		onProgressBatchListener.onProgressBatch(this, touchSamples.values, touchSamples.eventTimes, touchSamples.sampleCount, 2, true);
+	}
 
-		x = x * x_max / (getWidth() - pointerSize);
-		y = y * y_max / (getHeight() - pointerSize);
-		if (x > x_max) {
-			x = x_max;
+	/**
+	 * Tracks every pointer as a cursor. The pointer id 0 also moves the pointer, as the single touch does.
+	 * 
+	 * @param event the touch event
+	 */
+	private void onMultiCursorTouchEvent(MotionEvent event) {
+		final int actionIndex = event.getActionIndex();
+		
+		switch (event.getActionMasked()) {
+			case MotionEvent.ACTION_DOWN:
+			case MotionEvent.ACTION_POINTER_DOWN: {
+				final int id = event.getPointerId(actionIndex);
+				if (id >= maxCursorCount) {
+					break;
+				}
+				
+				isCursorActive[id] = true;
+				moveCursor(id, getTouchedXProgress(event.getX(actionIndex)), getTouchedYProgress(event.getY(actionIndex)), true);
+				
+				if (id == 0 && onBiaxialSeekBarChangeListener != null) {
+					onBiaxialSeekBarChangeListener.onStartTrackingTouch(this);
+				}
+				scheduleCursorFrame();
+				break;
+			}
+			case MotionEvent.ACTION_MOVE: {
+				final int pointerCount = event.getPointerCount();
+				for (int i = 0; i < pointerCount; i++) {
+					final int id = event.getPointerId(i);
+					if (id < maxCursorCount && isCursorActive[id]) {
+						moveCursor(id, getTouchedXProgress(event.getX(i)), getTouchedYProgress(event.getY(i)), false);
+					}
+				}
+				break;
+			}
+			case MotionEvent.ACTION_UP:
+			case MotionEvent.ACTION_POINTER_UP: {
+				final int id = event.getPointerId(actionIndex);
+				if (id >= maxCursorCount || !isCursorActive[id]) {
+					break;
+				}
+				
+				moveCursor(id, getTouchedXProgress(event.getX(actionIndex)), getTouchedYProgress(event.getY(actionIndex)), false);
+				releaseCursor(id);
+				break;
+			}
+			case MotionEvent.ACTION_CANCEL:
+				for (int id = 0; id < maxCursorCount; id++) {
+					if (isCursorActive[id]) {
+						releaseCursor(id);
+					}
+				}
+				break;
+		}
+	}
+	
+	/**
+	 * @param id the pointer id
+	 * @param progressX the x progress
+	 * @param progressY the y progress
+	 * @param isFirst true if the cursor has just appeared
+	 */
+	private void moveCursor(int id, int progressX, int progressY, boolean isFirst) {
+		if (id == 0) {
+			if (progressX != x_progress || progressY != y_progress) {
+				movePointer(progressX, progressY);
+				
+				if (onBiaxialSeekBarChangeListener != null) {
+					listenerThrottle.request();
+				}
+			}
+		} else if (isFirst) {
+			invalidatePointer(progressX, progressY, progressX, progressY);
+		} else if (progressX != cursorX[id] || progressY != cursorY[id]) {
+			invalidatePointer(cursorX[id], cursorY[id], progressX, progressY);
+		} else {
+			return;
+		}
+		
+		cursorX[id] = progressX;
+		cursorY[id] = progressY;
+		scheduleCursorFrame();
+	}
+	
+	/**
+	 * @param id the pointer id
+	 */
+	private void releaseCursor(int id) {
+		isCursorActive[id] = false;
+		
+		if (id == 0) {
+			listenerThrottle.cancel();
+			if (onBiaxialSeekBarChangeListener != null) {
+				onBiaxialSeekBarChangeListener.onProgressChanged(this, getXProgress(), getYProgress(), true);
+				onBiaxialSeekBarChangeListener.onStopTrackingTouch(this);
+			}
+		} else {
+			// the pointer stays, the other cursors disappear
+			invalidatePointer(cursorX[id], cursorY[id], cursorX[id], cursorY[id]);
 		}
-		if (y > y_max) {
-			y = y_max;
+		scheduleCursorFrame();
+	}
+	
+	private void scheduleCursorFrame() {
+		if (onBiaxialCursorsChangeListener != null && !isCursorFrameScheduled) {
+			isCursorFrameScheduled = true;
+			FrameClock.getInstance().postFrameCallback(cursorFrameCallback);
 		}
-		if (x < x_min) {
-			x = x_min;
+	}
+	
+	/**
+	 * Delivers every active cursor in one call.
+	 */
+	private void dispatchCursors() {
+		isCursorFrameScheduled = false;
+		if (onBiaxialCursorsChangeListener == null) {
+			return;
+		}
+		
+		int cursorCount = 0;
+		for (int id = 0; id < maxCursorCount; id++) {
+			if (isCursorActive[id]) {
+				dispatchPointerIds[cursorCount] = id;
+				dispatchCursorX[cursorCount] = cursorX[id];
+				dispatchCursorY[cursorCount] = cursorY[id];
+				cursorCount++;
+			}
+		}
+		onBiaxialCursorsChangeListener.onCursorsChanged(this, dispatchPointerIds, dispatchCursorX, dispatchCursorY, cursorCount);
+	}
+	
+	/**
+	 * Cursors follow the pointers directly, the acceleration curve applies only to the single touch.
+	 * 
+	 * @param maxCursorCount the number of simultaneous cursors, from 1 to {@link #MAX_CURSOR_COUNT}. 1 tracks only the first pointer
+	 */
+	public void setMaxCursorCount(int maxCursorCount) {
+		if (maxCursorCount < 1) {
+			maxCursorCount = 1;
 		}
-		if (y < y_min) {
-			y = y_min;
+		if (maxCursorCount > MAX_CURSOR_COUNT) {
+			maxCursorCount = MAX_CURSOR_COUNT;
+		}
+		
+		for (int id = maxCursorCount; id < this.maxCursorCount; id++) {
+			isCursorActive[id] = false;
+		}
+		this.maxCursorCount = maxCursorCount;
+		invalidate();
+	}
+	
+	public int getMaxCursorCount() {
+		return maxCursorCount;
+	}
+	
+	/**
+	 * @param onBiaxialCursorsChangeListener receives every active cursor once per frame while they move
+	 */
+	public void setOnBiaxialCursorsChangeListener(OnBiaxialCursorsChangeListener onBiaxialCursorsChangeListener) {
+		this.onBiaxialCursorsChangeListener = onBiaxialCursorsChangeListener;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onDetachedFromWindow()
+	 */
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		ValueAnimationDriver.cancelIfRunning(this);
+		if (isCursorFrameScheduled) {
+			FrameClock.getInstance().removeFrameCallback(cursorFrameCallback);
+			isCursorFrameScheduled = false;
+		}
+	}
+	
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		DrawMetrics.recordTouch(drawMetrics, event.getEventTime());
+		
+		if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+			ValueAnimationDriver.cancelIfRunning(this);
+		}
+		
+		if (maxCursorCount > 1) {
+			onMultiCursorTouchEvent(event);
+			return true;
+		}
+		
+		int x;
+		int y;
+		if (accelerationCurve != null) {
+			if (event.getAction() == MotionEvent.ACTION_DOWN) {
+				acceleratedX = x_progress;
+				acceleratedY = y_progress;
+				lastTouchX = event.getX();
+				lastTouchY = event.getY();
+				lastTouchTime = event.getEventTime();
+			} else if (onPointer) {
+				updateAcceleratedProgress(event);
+			}
+			x = (int) acceleratedX;
+			y = (int) acceleratedY;
+		} else {
+			x = getTouchedXProgress(event.getX());
+			y = getTouchedYProgress(event.getY());
 		}
 		
 		switch (event.getAction()) {
@@ -104,21 +582,26 @@ public class BiaxialSeekBar extends View {
 				break;
 			case MotionEvent.ACTION_MOVE:
 				if (onPointer) {
-					x_progress = (int)x;
-					y_progress = (int)y;
-					invalidate();
+					if (x != x_progress || y != y_progress) {
+						movePointer(x, y);
+						
+						if (onBiaxialSeekBarChangeListener != null) {
+							listenerThrottle.request();
+						}
+					}
 					
-					if (onBiaxialSeekBarChangeListener != null) {
-						onBiaxialSeekBarChangeListener.onProgressChanged(this, getXProgress(), getYProgress(), true);
+					if (onProgressBatchListener != null) {
+						dispatchTouchSamples(event);
 					}
 				}
 				break;
 			case MotionEvent.ACTION_UP:
 				onPointer = false;
+				listenerThrottle.cancel();
 				
-				x_progress = (int)x;
-				y_progress = (int)y;
-				invalidate();
+				if (x != x_progress || y != y_progress) {
+					movePointer(x, y);
+				}
 				
 				if (onBiaxialSeekBarChangeListener != null) {
 					onBiaxialSeekBarChangeListener.onProgressChanged(this, getXProgress(), getYProgress(), true);
@@ -154,36 +637,61 @@ public class BiaxialSeekBar extends View {
 		return y_max;
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onSaveInstanceState()
+	 */
 	@Override
 	public Parcelable onSaveInstanceState() {
-		Parcelable superState = super.onSaveInstanceState();
-		SavedState savedState = new SavedState(superState);
-		savedState.pointerColor = pointerColor;
-		savedState.pointerSize = pointerSize;
-		savedState.x_max = x_max;
-		savedState.x_min = x_min;
-		savedState.x_progress = x_progress;
-		savedState.y_max = y_max;
-		savedState.y_min = y_min;
-		savedState.y_progress = y_progress;
-		return savedState;
+		return CompactSavedState.save(super.onSaveInstanceState(), this);
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onRestoreInstanceState(android.os.Parcelable)
+	 */
 	@Override
 	public void onRestoreInstanceState(Parcelable state) {
-		if (state != null && state instanceof SavedState) {
-			SavedState savedState = (SavedState) state;
-			super.onRestoreInstanceState(savedState.getSuperState());
-			
-			pointerSize = savedState.pointerSize;
-			pointerColor = savedState.pointerColor;
-			x_progress = savedState.x_progress;
-			x_min = savedState.x_min;
-			x_max = savedState.x_max;
-			y_progress = savedState.y_progress;
-			y_min = savedState.y_min;
-			y_max = savedState.y_max;
-		}
+		super.onRestoreInstanceState(CompactSavedState.getSuperState(state));
+		CompactSavedState.restore(state, this);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.CompactStateControl#writeState(jp.kshoji.android.engine.CompactStateWriter)
+	 */
+	@Override
+	public void writeState(CompactStateWriter writer) {
+		writer.beginRecord(STATE_VERSION);
+		writer.writeInt(pointerSize, 44);
+		writer.writeInt(pointerColor, Color.BLUE);
+		writer.writeInt(x_min, 0);
+		writer.writeInt(x_max, 100);
+		writer.writeInt(x_progress, 50);
+		writer.writeInt(y_min, 0);
+		writer.writeInt(y_max, 100);
+		writer.writeInt(y_progress, 50);
+		writer.endRecord();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.CompactStateControl#readState(jp.kshoji.android.engine.CompactStateReader)
+	 */
+	@Override
+	public void readState(CompactStateReader reader) {
+		reader.beginRecord();
+		pointerSize = reader.readInt(44);
+		pointerColor = reader.readInt(Color.BLUE);
+		x_min = reader.readInt(0);
+		x_max = reader.readInt(100);
+		x_progress = reader.readInt(50);
+		y_min = reader.readInt(0);
+		y_max = reader.readInt(100);
+		y_progress = reader.readInt(50);
+		reader.endRecord();
+		
+		invalidate();
 	}
 	
 	/**
@@ -193,56 +701,122 @@ public class BiaxialSeekBar extends View {
 		this.onBiaxialSeekBarChangeListener = onBiaxialSeekBarChangeListener;
 	}
 	
-	protected static class SavedState extends BaseSavedState {
-		int pointerSize;
-		int pointerColor;
-		int x_progress;
-		int x_min;
-		int x_max;
-		int y_progress;
-		int y_min;
-		int y_max;
-		
-		SavedState(Parcelable superState) {
-			super(superState);
-		}
-		
-		SavedState(Parcel in) {
-			super(in);
-			pointerSize = in.readInt();
-			pointerColor = in.readInt();
-			x_progress = in.readInt();
-			x_min = in.readInt();
-			x_max = in.readInt();
-			y_progress = in.readInt();
-			y_min = in.readInt();
-			y_max = in.readInt();
+	/**
+	 * Limits the onProgressChanged calls while tracking a touch. Intermediate changes are merged, and the latest progress is delivered.
+	 * 
+	 * @param minIntervalMillis the minimum interval between two calls, 0 to call on every change
+	 */
+	public void setListenerRateLimit(long minIntervalMillis) {
+		listenerThrottle.setMinInterval(minIntervalMillis);
+	}
+	
+	/**
+	 * Delays the onProgressChanged calls while tracking a touch, until the progress stays unchanged for the time.
+	 * 
+	 * @param debounceMillis the quiet time, 0 to disable
+	 */
+	public void setListenerDebounce(long debounceMillis) {
+		listenerThrottle.setDebounce(debounceMillis);
+	}
+	
+	/**
+	 * @param drawMetrics records the drawing cost of this view, null to disable recording
+	 */
+	public void setDrawMetrics(DrawMetrics drawMetrics) {
+		this.drawMetrics = drawMetrics;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#invalidate()
+	 */
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		DrawMetrics.recordInvalidate(drawMetrics);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#invalidate(int, int, int, int)
+	 */
+	@Override
+	public void invalidate(int l, int t, int r, int b) {
+		super.invalidate(l, t, r, b);
+		DrawMetrics.recordInvalidate(drawMetrics);
+	}
+	
+	/**
+	 * Posts the progress from any thread.
+	 * The updates are coalesced, and the view is redrawn at most once per frame with the latest progress.
+	 * With an {@link OnProgressBatchListener}, up to 64 values are kept per frame. Further values replace the latest one, and are counted in {@link #getDroppedProgressCount()}.
+	 * 
+	 * @param progressX the x progress
+	 * @param progressY the y progress
+	 */
+	public void postProgress(int progressX, int progressY) {
+		progressFeed.post(progressX, progressY);
+	}
+	
+	/**
+	 * @return the number of posted progress values not delivered to the {@link OnProgressBatchListener} because more than 64 were posted in a frame
+	 */
+	public long getDroppedProgressCount() {
+		return progressFeed.getDroppedSampleCount();
+	}
+	
+	/**
+	 * Moves the pointer smoothly to the progress, on the UI thread.
+	 * Touching the control stops the animation.
+	 * 
+	 * @param progressX the x progress
+	 * @param progressY the y progress
+	 * @param durationMillis the duration
+	 */
+	public void animateProgress(int progressX, int progressY, long durationMillis) {
+		final ValueAnimationDriver driver = ValueAnimationDriver.getInstance();
+		driver.animateTo(this, 0, progressX, durationMillis);
+		driver.animateTo(this, 1, progressY, durationMillis);
+	}
+	
+	/**
+	 * @param onProgressBatchListener receives every posted progress in one batch per frame, and every touch sample in one batch per move event.
+	 * null to deliver only the latest progress
+	 */
+	public void setOnProgressBatchListener(OnProgressBatchListener onProgressBatchListener) {
+		this.onProgressBatchListener = onProgressBatchListener;
+		progressFeed.setHistoryEnabled(onProgressBatchListener != null);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.SceneControl#getSceneValueCount()
+	 */
+	@Override
+	public int getSceneValueCount() {
+		return 2;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.SceneControl#captureSceneValues(int[], int)
+	 */
+	@Override
+	public void captureSceneValues(int[] snapshot, int offset) {
+		snapshot[offset] = x_progress;
+		snapshot[offset + 1] = y_progress;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.SceneControl#applySceneValues(int[], int)
+	 */
+	@Override
+	public void applySceneValues(int[] snapshot, int offset) {
+		final int progressX = snapshot[offset];
+		final int progressY = snapshot[offset + 1];
+		if (progressX != x_progress || progressY != y_progress) {
+			movePointer(progressX, progressY);
 		}
-		
-		@Override
-		public void writeToParcel(Parcel destination, int flags) {
-			super.writeToParcel(destination, flags);
-			destination.writeInt(pointerSize);
-			destination.writeInt(pointerColor);
-			destination.writeInt(x_progress);
-			destination.writeInt(x_min);
-			destination.writeInt(x_max);
-			destination.writeInt(y_progress);
-			destination.writeInt(y_min);
-			destination.writeInt(y_max);
-		}
-		
-		public static final Parcelable.Creator<SavedState> CREATOR = new Creator<SavedState>() {
-			
-			@Override
-			public SavedState createFromParcel(Parcel in) {
-				return new SavedState(in);
-			}
-			
-			@Override
-			public SavedState[] newArray(int size) {
-				return new SavedState[size];
-			}
-		};
 	}
 }
@@ -0,0 +1,165 @@
+package jp.kshoji.android.view;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Receives values from any thread and delivers them on the UI thread, at most once per frame.
+ * The latest value always wins; intermediate values are kept only when history is enabled.
+ * Up to {@link #DEFAULT_CAPACITY} samples are kept per frame, the later samples replace the latest one and are counted as dropped.
+ */
+final class CoalescedValueFeed implements Runnable, FrameClock.FrameCallback {
+	// the number of samples kept per frame with history
+	static final int DEFAULT_CAPACITY = 64;
+	
+	interface Target {
+		
+		/**
+		 * Called on the UI thread with the values posted since the last frame.
+		 * 
+		 * @param values valuesPerSample values for each sample, the latest sample is the last one
+		 * @param eventTimes the time of each sample
+		 * @param sampleCount the number of samples, at least 1
+		 */
+		void onValuesCoalesced(int[] values, long[] eventTimes, int sampleCount);
+	}
+	
+	private final Target target;
+	private final int valuesPerSample;
+	private final int capacity;
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private final AtomicBoolean isScheduled = new AtomicBoolean();
+	private final Object lock = new Object();
+	
+	// guarded by lock
+	private int[] pendingValues;
+	private long[] pendingTimes;
+	private int pendingCount;
+	private boolean isHistoryEnabled;
+	private long droppedSampleCount;
+	
+	// UI thread only
+	private int[] deliveringValues;
+	private long[] deliveringTimes;
+	
+	CoalescedValueFeed(Target target, int valuesPerSample) {
+		this.target = target;
+		this.valuesPerSample = valuesPerSample;
+		this.capacity = DEFAULT_CAPACITY;
+		pendingValues = new int[capacity * valuesPerSample];
+		pendingTimes = new long[capacity];
+		deliveringValues = new int[capacity * valuesPerSample];
+		deliveringTimes = new long[capacity];
+	}
+	
+	/**
+	 * @param isHistoryEnabled if true, intermediate values are delivered too
+	 */
+	void setHistoryEnabled(boolean isHistoryEnabled) {
+		synchronized (lock) {
+			this.isHistoryEnabled = isHistoryEnabled;
+		}
+	}
+	
+	/**
+	 * @return the number of intermediate samples replaced because the history was full, callable from any thread
+	 */
+	long getDroppedSampleCount() {
+		synchronized (lock) {
+			return droppedSampleCount;
+		}
+	}
+	
+	/**
+	 * Posts a single axis value, callable from any thread.
+	 * 
+	 * @param value the value
+	 */
+	void post(int value) {
+		synchronized (lock) {
+			int index = nextSampleIndex();
+			pendingValues[index * valuesPerSample] = value;
+		}
+		schedule();
+	}
+	
+	/**
+	 * Posts a two axis value, callable from any thread.
+	 * 
+	 * @param value0 the first value
+	 * @param value1 the second value
+	 */
+	void post(int value0, int value1) {
+		synchronized (lock) {
+			int index = nextSampleIndex();
+			pendingValues[index * valuesPerSample] = value0;
+			pendingValues[index * valuesPerSample + 1] = value1;
+		}
+		schedule();
+	}
+	
+	/**
+	 * Must be called with the lock held.
+	 * 
+	 * @return the sample index to overwrite
+	 */
+	private int nextSampleIndex() {
+		int index;
+		if (pendingCount > 0 && (!isHistoryEnabled || pendingCount == capacity)) {
+			// overwrite the latest sample
+			index = pendingCount - 1;
+			if (isHistoryEnabled) {
+				droppedSampleCount++;
+			}
+		} else {
+			index = pendingCount++;
+		}
+		pendingTimes[index] = SystemClock.uptimeMillis();
+		return index;
+	}
+	
+	private void schedule() {
+		if (isScheduled.compareAndSet(false, true)) {
+			handler.post(this);
+		}
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		FrameClock.getInstance().postFrameCallback(this);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.FrameClock.FrameCallback#doFrame(long)
+	 */
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		int sampleCount;
+		synchronized (lock) {
+			isScheduled.set(false);
+			
+			int[] values = pendingValues;
+			pendingValues = deliveringValues;
+			deliveringValues = values;
+			
+			long[] times = pendingTimes;
+			pendingTimes = deliveringTimes;
+			deliveringTimes = times;
+			
+			sampleCount = pendingCount;
+			pendingCount = 0;
+		}
+		
+		if (sampleCount > 0) {
+			target.onValuesCoalesced(deliveringValues, deliveringTimes, sampleCount);
+		}
+	}
+}
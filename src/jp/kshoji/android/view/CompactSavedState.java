@@ -0,0 +1,83 @@
+package jp.kshoji.android.view;
+
+import jp.kshoji.android.engine.CompactStateReader;
+import jp.kshoji.android.engine.CompactStateWriter;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.view.View.BaseSavedState;
+
+/**
+ * The saved state of every {@link CompactStateControl}, holding the record written by {@link CompactStateControl#writeState(CompactStateWriter)}.
+ */
+final class CompactSavedState extends BaseSavedState {
+	private byte[] state;
+	
+	CompactSavedState(Parcelable superState) {
+		super(superState);
+	}
+	
+	CompactSavedState(Parcel in) {
+		super(in);
+		state = in.createByteArray();
+	}
+	
+	/**
+	 * @param superState the state of the super class
+	 * @param control the control
+	 * @return the state to return from onSaveInstanceState
+	 */
+	static Parcelable save(Parcelable superState, CompactStateControl control) {
+		CompactSavedState savedState = new CompactSavedState(superState);
+		CompactStateWriter writer = new CompactStateWriter();
+		control.writeState(writer);
+		savedState.state = writer.toByteArray();
+		return savedState;
+	}
+	
+	/**
+	 * @param state the state passed to onRestoreInstanceState
+	 * @return the state to pass to the super class
+	 */
+	static Parcelable getSuperState(Parcelable state) {
+		if (state instanceof CompactSavedState) {
+			return ((CompactSavedState) state).getSuperState();
+		}
+		return state;
+	}
+	
+	/**
+	 * Restores the control from the state, if it has been saved by {@link #save(Parcelable, CompactStateControl)}.
+	 * Call after the super class has restored its state, which may reset the progress.
+	 * 
+	 * @param state the state passed to onRestoreInstanceState
+	 * @param control the control
+	 */
+	static void restore(Parcelable state, CompactStateControl control) {
+		if (state instanceof CompactSavedState) {
+			control.readState(new CompactStateReader(((CompactSavedState) state).state));
+		}
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.AbsSavedState#writeToParcel(android.os.Parcel, int)
+	 */
+	@Override
+	public void writeToParcel(Parcel destination, int flags) {
+		super.writeToParcel(destination, flags);
+		destination.writeByteArray(state);
+	}
+	
+	public static final Parcelable.Creator<CompactSavedState> CREATOR = new Creator<CompactSavedState>() {
+		
+		@Override
+		public CompactSavedState createFromParcel(Parcel in) {
+			return new CompactSavedState(in);
+		}
+		
+		@Override
+		public CompactSavedState[] newArray(int size) {
+			return new CompactSavedState[size];
+		}
+	};
+}
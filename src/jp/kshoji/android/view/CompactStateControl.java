@@ -0,0 +1,25 @@
+package jp.kshoji.android.view;
+
+import jp.kshoji.android.engine.CompactStateReader;
+import jp.kshoji.android.engine.CompactStateWriter;
+
+/**
+ * A view which saves its state in the compact state format, used by {@link ControlStateGroup}.
+ */
+public interface CompactStateControl {
+	
+	/**
+	 * Writes the state as one record.
+	 * Each field is written as the difference from its attribute default, so a view left at its defaults takes a few bytes.
+	 * 
+	 * @param writer the writer
+	 */
+	void writeState(CompactStateWriter writer);
+	
+	/**
+	 * Reads the record written by {@link #writeState(CompactStateWriter)}.
+	 * 
+	 * @param reader the reader
+	 */
+	void readState(CompactStateReader reader);
+}
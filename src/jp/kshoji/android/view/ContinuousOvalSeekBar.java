@@ -1,22 +1,31 @@
 package jp.kshoji.android.view;
 
+import jp.kshoji.android.engine.AutomationTimeline;
+import jp.kshoji.android.engine.CompactStateReader;
+import jp.kshoji.android.engine.CompactStateWriter;
+import jp.kshoji.android.engine.ContinuousOvalMath;
+import jp.kshoji.android.engine.FlingDecelerator;
+import jp.kshoji.android.engine.TurnAccumulator;
+import jp.kshoji.android.listener.OnProgressDeltaListener;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Paint.Align;
-import android.graphics.Rect;
 import android.graphics.RectF;
-import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.ViewConfiguration;
 import android.widget.SeekBar;
 
-public class ContinuousOvalSeekBar extends SeekBar {
+public class ContinuousOvalSeekBar extends SeekBar implements CompactStateControl {
+	private static final int STATE_VERSION = 1;
+	
 	private Paint wheelPaint;
 	private Paint textPaint;
+	private final ValueTextRenderer valueTextRenderer = new ValueTextRenderer();
 	private float wheelRadius;
 	private RectF wheelRectangle = new RectF();
 	private boolean onPointer = false;
@@ -27,11 +36,33 @@ public class ContinuousOvalSeekBar extends SeekBar {
 	private boolean isWheelDirectionClockwise;
 	private int textSize;
 	private int textColor;
-	private int progress;
-	private int min;
-	private int max;
+	// the movement of the last touch event, the progress is offset by (max + min) / 2
+	private volatile int lastDelta;
+	private TurnAccumulator turnAccumulator;
+	private volatile int min;
+	private volatile int max;
 	
 	private OnSeekBarChangeListener onSeekBarChangeListener;
+	private DrawMetrics drawMetrics;
+	
+	// movement delivered once per frame, including the fling
+	private OnProgressDeltaListener onProgressDeltaListener;
+	private int pendingDelta;
+	private boolean isDeltaFrameScheduled;
+	private AutomationTimeline automationTimeline;
+	private VelocityTracker velocityTracker;
+	private final FlingDecelerator flingDecelerator = new FlingDecelerator();
+	private boolean isFlingEnabled = true;
+	private long flingDispatchedPosition;
+	private int minimumFlingVelocity;
+	private int maximumFlingVelocity;
+	private final FrameClock.FrameCallback deltaFrameCallback = new FrameClock.FrameCallback() {
+		
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			dispatchDeltaFrame(frameTimeNanos);
+		}
+	};
 	
 	public ContinuousOvalSeekBar(Context context) {
 		super(context);
@@ -49,7 +80,7 @@ public class ContinuousOvalSeekBar extends SeekBar {
 	}
 	
 	private void init(AttributeSet attrs, int defStyle) {
-		final TypedArray typedArray = getContext().obtainStyledAttributes(attrs, R.styleable.OvalSeekBar, defStyle, 0);
+		final TypedArray typedArray = getContext().obtainStyledAttributes(attrs, R.styleable.ContinuousOvalSeekBar, defStyle, 0);
 		
 		wheelSize = typedArray.getDimensionPixelSize(R.styleable.ContinuousOvalSeekBar_wheelSize, 16);
 		wheelColor = typedArray.getColor(R.styleable.ContinuousOvalSeekBar_wheelColor, Color.BLACK);
@@ -57,128 +88,173 @@ public class ContinuousOvalSeekBar extends SeekBar {
 		isWheelDirectionClockwise = typedArray.getInt(R.styleable.ContinuousOvalSeekBar_wheelDirection, 0) == 0;
 		
 		min = typedArray.getInt(R.styleable.ContinuousOvalSeekBar_min, 0);
-		typedArray.recycle();
 		
-		TypedArray androidTypedArray = getContext().obtainStyledAttributes(attrs, new int[] { android.R.attr.textSize, android.R.attr.textColor, android.R.attr.max, android.R.attr.progress });
-		textSize = androidTypedArray.getDimensionPixelSize(0, 12);
-		textColor = androidTypedArray.getColor(1, Color.BLUE);
-		max = androidTypedArray.getInt(2, 100);
-		progress = androidTypedArray.getInt(3, 0);
-		androidTypedArray.recycle();
+		textSize = typedArray.getDimensionPixelSize(R.styleable.ContinuousOvalSeekBar_android_textSize, 12);
+		textColor = typedArray.getColor(R.styleable.ContinuousOvalSeekBar_android_textColor, Color.BLUE);
+		max = typedArray.getInt(R.styleable.ContinuousOvalSeekBar_android_max, 100);
+		int progress = typedArray.getInt(R.styleable.ContinuousOvalSeekBar_android_progress, 0);
+		typedArray.recycle();
 		
 		// reset progress value
 		setProgress(progress);
+		turnAccumulator = new TurnAccumulator(1 + max - min);
 		
-		wheelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		wheelPaint.setStyle(Paint.Style.STROKE);
-		wheelPaint.setColor(wheelColor);
-		wheelPaint.setStrokeWidth(wheelSize);
-		
-		textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		textPaint.setTextSize(textSize);
-		textPaint.setTextAlign(Align.CENTER);
-		textPaint.setColor(textColor);
+		wheelPaint = PaintCache.getStrokePaint(wheelColor, wheelSize);
+		textPaint = PaintCache.getCenteredTextPaint(textColor, textSize);
+		valueTextRenderer.setTextPaint(textPaint);
 		
-		debugPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		debugPaint.setStyle(Paint.Style.STROKE);
-		debugPaint.setColor(Color.GREEN);
-		debugPaint.setStrokeWidth(0);
+		final ViewConfiguration viewConfiguration = ViewConfiguration.get(getContext());
+		minimumFlingVelocity = viewConfiguration.getScaledMinimumFlingVelocity();
+		maximumFlingVelocity = viewConfiguration.getScaledMaximumFlingVelocity();
 	}
 	
-	private void drawTextCenter(Canvas canvas, int x, int y, String textToDraw) {
-		Rect bounds = new Rect();
-		textPaint.getTextBounds(textToDraw, 0, textToDraw.length(), bounds);
-		canvas.drawText(textToDraw, x / 2, y / 2 + (bounds.height() * 0.3f), textPaint);
+	private void drawTextCenter(Canvas canvas, int x, int y, int value) {
+		valueTextRenderer.draw(canvas, x, y, value);
 	}
 	
-	Paint debugPaint;
+	/**
+	 * @param valueFormatter the formatter for the center label, null to draw the integer value
+	 */
+	public void setValueFormatter(ValueFormatter valueFormatter) {
+		valueTextRenderer.setValueFormatter(valueFormatter);
+		
+		invalidate();
+	}
 	
 	/*
 	 * (non-Javadoc)
 	 * @see android.view.View#onDraw(android.graphics.Canvas)
 	 */
 	@Override
-	protected synchronized void onDraw(Canvas canvas) {
+	protected void onDraw(Canvas canvas) {
+		final DrawMetrics metrics = drawMetrics;
+		if (metrics != null) {
+			metrics.beginDraw();
+		}
+		
 		wheelRadius = getWidth() * 0.5f;
 		wheelRectangle.set(-wheelRadius + wheelSize / 2, -wheelRadius + wheelSize / 2, wheelRadius - wheelSize / 2, wheelRadius - wheelSize / 2);
 		
 		canvas.translate(wheelRadius, wheelRadius);
 		canvas.drawOval(wheelRectangle, wheelPaint);
 		
-		drawTextCenter(canvas, 0, 0, "" + getProgress());
+		drawTextCenter(canvas, 0, 0, getProgress());
+		
+		if (metrics != null) {
+			// the wheel and the text
+			metrics.countDrawCalls(2);
+			metrics.endDraw(this);
+		}
 	}
 	
-	int previousProgress;
-	
+	/*
+	 * (non-Javadoc)
+	 * @see android.widget.ProgressBar#setProgress(int)
+	 */
 	@Override
-	public synchronized void setProgress(int progress) {
-		previousProgress = progress; // NOTE not this.progress
-		this.progress = progress;
+	public void setProgress(int progress) {
+		// may be called from any thread, the wheel has no absolute angle so the movement is reset
+		lastDelta = 0;
 		
-		invalidate();
+		ProgressState.invalidate(this);
 	}
 	
-	private synchronized void updateProgress(double x, double y) {
-		previousProgress = progress;
-		progress = getClickedProgress(x, y);
+	/**
+	 * Starts tracking the wheel rotation from the touched angle.
+	 * 
+	 * @param x the x position, relative to the wheel center
+	 * @param y the y position, relative to the wheel center
+	 */
+	private void beginProgress(double x, double y) {
+		final int stepsPerTurn = 1 + max - min;
+		if (turnAccumulator.getStepsPerTurn() != stepsPerTurn) {
+			turnAccumulator.setStepsPerTurn(stepsPerTurn);
+		}
+		turnAccumulator.begin(getClickedStep(x, y));
+		lastDelta = 0;
 	}
 	
-	private int getClickedProgress(double x, double y) {
-		// unit: 0.0 to 1.0
-		double unit;
+	/**
+	 * Accumulates the movement of the event, including the historical samples batched into it.
+	 * 
+	 * @param event the touch event
+	 * @return the movement in values
+	 */
+	private int updateProgress(MotionEvent event) {
+		int delta = 0;
 		
-		if (isWheelDirectionClockwise) {
-			double angle = Math.atan2(y, x);
-			unit = angle / (2.0 * Math.PI);
-		} else {
-			double angle = Math.atan2(y, x);
-			unit = -angle / (2.0 * Math.PI);
+		// consecutive samples must be less than half a turn apart, so fast spins need every sample
+		final int historySize = event.getHistorySize();
+		for (int i = 0; i < historySize; i++) {
+			delta += turnAccumulator.update(getClickedStep(event.getHistoricalX(i) - wheelRadius, event.getHistoricalY(i) - wheelRadius));
 		}
+		delta += turnAccumulator.update(getClickedStep(event.getX() - wheelRadius, event.getY() - wheelRadius));
 		
-		return (int) ((1.0 + max - min) * unit);
+		lastDelta = delta;
+		return delta;
+	}
+	
+	private int getClickedStep(double x, double y) {
+		return ContinuousOvalMath.getAngleStep(x, y, turnAccumulator.getStepsPerTurn(), isWheelDirectionClockwise);
 	}
 	
+	/**
+	 * @return the movement of the last touch event, offset by (max + min) / 2
+	 */
 	@Override
-	public synchronized int getProgress() {
-		int result;
-		if (progress * previousProgress < (-(1 + max - min) * (1 + max - min) / 16.0)) {
-			// Math.abs(progress) < ((1 + max - min) / 4.0)
-			
-			if (progress > previousProgress) {
-				// progress: 63
-				// previousProgress: -63
-				result = (progress - (1 + max - min + previousProgress));
-			} else {
-				// progress: -63
-				// previousProgress: +63
-				result = ((1 + max - min + progress) - previousProgress);
-			}
-		} else {
-			result = progress - previousProgress;
-		}
-		
-		return result + (max + min) / 2;
+	public int getProgress() {
+		return lastDelta + (max + min) / 2;
+	}
+	
+	/**
+	 * @return the unbounded position of the wheel in values, including the fling. Must be called on the UI thread.
+	 */
+	public long getPosition() {
+		return turnAccumulator.getPosition();
+	}
+	
+	/**
+	 * @param position the unbounded position of the wheel in values. Must be called on the UI thread.
+	 */
+	public void setPosition(long position) {
+		turnAccumulator.setPosition(position);
+	}
+	
+	/**
+	 * @return the number of whole turns from the position 0, rounded toward negative infinity. Must be called on the UI thread.
+	 */
+	public long getRevolutions() {
+		return turnAccumulator.getRevolutions();
 	}
 	
 	@Override
-	public synchronized int getMax() {
+	public int getMax() {
 		return max;
 	}
 	
-	public synchronized int getMin() {
+	public int getMin() {
 		return min;
 	}
 	
 	@Override
 	public boolean onTouchEvent(MotionEvent event) {
+		DrawMetrics.recordTouch(drawMetrics, event.getEventTime());
+		
 		float x = event.getX();
 		float y = event.getY();
 		
+		if (velocityTracker == null) {
+			velocityTracker = VelocityTracker.obtain();
+		}
+		velocityTracker.addMovement(event);
+		
 		switch (event.getAction()) {
 			case MotionEvent.ACTION_DOWN:
+				// touching the wheel stops the fling
+				stopFling();
+				
 				onPointer = true;
-				updateProgress(x - wheelRadius, y - wheelRadius);
-				updateProgress(x - wheelRadius, y - wheelRadius);
+				beginProgress(x - wheelRadius, y - wheelRadius);
 				
 				invalidate();
 				
@@ -188,122 +264,316 @@ public class ContinuousOvalSeekBar extends SeekBar {
 				break;
 			case MotionEvent.ACTION_MOVE:
 				if (onPointer) {
-					updateProgress(x - wheelRadius, y - wheelRadius);
+					final int previousDelta = lastDelta;
+					final int delta = updateProgress(event);
 					
-					invalidate();
+					if (delta != previousDelta) {
+						invalidate();
+					}
 					
-					if (onSeekBarChangeListener != null) {
+					// each call reports the movement since the previous event, so calls are not merged
+					if (delta != 0 && onSeekBarChangeListener != null) {
 						onSeekBarChangeListener.onProgressChanged(this, getProgress(), true);
 					}
+					
+					if (delta != 0 && hasDeltaReceiver()) {
+						pendingDelta += delta;
+						scheduleDeltaFrame();
+					}
 				}
 				break;
 			case MotionEvent.ACTION_UP:
+				final int previousDelta = lastDelta;
+				final int delta = onPointer ? updateProgress(event) : 0;
 				onPointer = false;
 				
-				updateProgress(x - wheelRadius, y - wheelRadius);
-				updateProgress(x - wheelRadius, y - wheelRadius);
+				if (delta != 0 && hasDeltaReceiver()) {
+					pendingDelta += delta;
+					scheduleDeltaFrame();
+				}
+				
+				// the released wheel reports no movement, as the progress returns to the center
+				lastDelta = 0;
+				if (previousDelta != 0) {
+					invalidate();
+				}
 				
 				if (onSeekBarChangeListener != null) {
 					onSeekBarChangeListener.onProgressChanged(this, getProgress(), true);
 					onSeekBarChangeListener.onStopTrackingTouch(this);
 				}
+				
+				startFling(x - wheelRadius, y - wheelRadius);
+				releaseVelocityTracker();
+				break;
+			case MotionEvent.ACTION_CANCEL:
+				onPointer = false;
+				releaseVelocityTracker();
 				break;
 		}
 		return true;
 	}
 	
-	@Override
-	public Parcelable onSaveInstanceState() {
-		Parcelable superState = super.onSaveInstanceState();
+	/**
+	 * Starts the fling with the angular velocity of the released touch.
+	 * 
+	 * @param x the x position, relative to the wheel center
+	 * @param y the y position, relative to the wheel center
+	 */
+	private void startFling(double x, double y) {
+		if (!isFlingEnabled || !hasDeltaReceiver() || velocityTracker == null) {
+			return;
+		}
 		
-		SavedState savedState = new SavedState(superState);
-		savedState.isWheelDirectionClockwise = isWheelDirectionClockwise;
-		savedState.max = max;
-		savedState.min = min;
-		savedState.progress = progress;
-		savedState.textColor = textColor;
-		savedState.textSize = textSize;
-		savedState.wheelColor = wheelColor;
-		savedState.wheelSize = wheelSize;
+		final double radiusSquared = x * x + y * y;
+		if (radiusSquared < 1.0) {
+			return;
+		}
 		
-		return savedState;
-	}
-	
-	@Override
-	public void onRestoreInstanceState(Parcelable state) {
-		if (state != null && state instanceof SavedState) {
-			SavedState savedState = (SavedState) state;
-			super.onRestoreInstanceState(savedState.getSuperState());
-			isWheelDirectionClockwise = savedState.isWheelDirectionClockwise;
-			
-			max = savedState.max;
-			min = savedState.min;
-			progress = savedState.progress;
-			textColor = savedState.textColor;
-			textSize = savedState.textSize;
-			wheelColor = savedState.wheelColor;
-			wheelSize = savedState.wheelSize;
+		velocityTracker.computeCurrentVelocity(1000, maximumFlingVelocity);
+		final double velocityX = velocityTracker.getXVelocity();
+		final double velocityY = velocityTracker.getYVelocity();
+		
+		// radians per second, the derivative of atan2(y, x)
+		final double angularVelocity = (x * velocityY - y * velocityX) / radiusSquared;
+		if (Math.abs(angularVelocity) * Math.sqrt(radiusSquared) < minimumFlingVelocity) {
+			return;
 		}
+		
+		double valuesPerSecond = angularVelocity / (2.0 * Math.PI) * (1.0 + max - min);
+		if (!isWheelDirectionClockwise) {
+			valuesPerSecond = -valuesPerSecond;
+		}
+		
+		flingDispatchedPosition = 0;
+		flingDecelerator.start(valuesPerSecond, System.nanoTime());
+		scheduleDeltaFrame();
 	}
 	
 	/**
-	 * @param onSeekBarChangeListener the onSeekBarChangeListener to set
+	 * @return true if the movement of each frame is delivered to a listener or recorded
 	 */
-	@Override
-	public void setOnSeekBarChangeListener(OnSeekBarChangeListener onSeekBarChangeListener) {
-		this.onSeekBarChangeListener = onSeekBarChangeListener;
+	private boolean hasDeltaReceiver() {
+		return onProgressDeltaListener != null || automationTimeline != null;
 	}
 	
-	protected static class SavedState extends BaseSavedState {
-		boolean isWheelDirectionClockwise;
-		int max;
-		int min;
-		int progress;
-		int textColor;
-		int textSize;
-		int wheelColor;
-		int wheelSize;
-		
-		SavedState(Parcelable superState) {
-			super(superState);
+	private void stopFling() {
+		flingDecelerator.abort();
+	}
+	
+	private void releaseVelocityTracker() {
+		if (velocityTracker != null) {
+			velocityTracker.recycle();
+			velocityTracker = null;
 		}
-		
-		SavedState(Parcel in) {
-			super(in);
-			isWheelDirectionClockwise = in.readInt() == 1;
-			max = in.readInt();
-			min = in.readInt();
-			progress = in.readInt();
-			textColor = in.readInt();
-			textSize = in.readInt();
-			wheelColor = in.readInt();
-			wheelSize = in.readInt();
+	}
+	
+	private void scheduleDeltaFrame() {
+		if (!isDeltaFrameScheduled) {
+			isDeltaFrameScheduled = true;
+			FrameClock.getInstance().postFrameCallback(deltaFrameCallback);
 		}
+	}
+	
+	/**
+	 * Advances the fling, and delivers the movement accumulated since the previous frame.
+	 * 
+	 * @param frameTimeNanos the frame time
+	 */
+	private void dispatchDeltaFrame(long frameTimeNanos) {
+		isDeltaFrameScheduled = false;
 		
-		@Override
-		public void writeToParcel(Parcel destination, int flags) {
-			super.writeToParcel(destination, flags);
-			destination.writeInt(isWheelDirectionClockwise ? 1 : 0);
-			destination.writeInt(max);
-			destination.writeInt(min);
-			destination.writeInt(progress);
-			destination.writeInt(textColor);
-			destination.writeInt(textSize);
-			destination.writeInt(wheelColor);
-			destination.writeInt(wheelSize);
+		final boolean isFling = !flingDecelerator.isFinished();
+		if (isFling) {
+			flingDecelerator.computePosition(frameTimeNanos);
+			
+			// the fractional part is carried over to the next frame
+			final long position = (long) flingDecelerator.getPosition();
+			pendingDelta += (int) (position - flingDispatchedPosition);
+			turnAccumulator.move(position - flingDispatchedPosition);
+			flingDispatchedPosition = position;
+			
+			if (!flingDecelerator.isFinished()) {
+				scheduleDeltaFrame();
+			}
 		}
 		
-		public static final Parcelable.Creator<SavedState> CREATOR = new Creator<SavedState>() {
+		if (pendingDelta != 0) {
+			final int delta = pendingDelta;
+			pendingDelta = 0;
 			
-			@Override
-			public SavedState createFromParcel(Parcel in) {
-				return new SavedState(in);
+			if (automationTimeline != null) {
+				automationTimeline.add(frameTimeNanos / 1000000L, delta);
 			}
-			
-			@Override
-			public SavedState[] newArray(int size) {
-				return new SavedState[size];
+			if (onProgressDeltaListener != null) {
+				onProgressDeltaListener.onProgressDelta(this, delta, isFling);
 			}
-		};
+		}
+	}
+	
+	/**
+	 * @param onProgressDeltaListener receives the movement accumulated in each frame, including the fling after the touch is released
+	 */
+	public void setOnProgressDeltaListener(OnProgressDeltaListener onProgressDeltaListener) {
+		this.onProgressDeltaListener = onProgressDeltaListener;
+	}
+	
+	/**
+	 * @param automationTimeline records the movement of each frame with the frame time in milliseconds, must have one channel. null to stop recording
+	 */
+	public void setAutomationTimeline(AutomationTimeline automationTimeline) {
+		if (automationTimeline != null && automationTimeline.getChannelCount() != 1) {
+			throw new IllegalArgumentException("the timeline must have one channel");
+		}
+		this.automationTimeline = automationTimeline;
+	}
+	
+	/**
+	 * Turns the wheel by the movement as if it was dragged, e.g. to play the recorded movement back. Must be called on the UI thread.
+	 * The movement is delivered to {@link OnProgressDeltaListener} in the next frame.
+	 * 
+	 * @param delta the movement, in values
+	 */
+	public void moveBy(int delta) {
+		if (delta == 0) {
+			return;
+		}
+		
+		turnAccumulator.move(delta);
+		lastDelta = delta;
+		pendingDelta += delta;
+		scheduleDeltaFrame();
+		ProgressState.invalidate(this);
+	}
+	
+	/**
+	 * @param isFlingEnabled true to keep the wheel spinning after a quick release
+	 */
+	public void setFlingEnabled(boolean isFlingEnabled) {
+		this.isFlingEnabled = isFlingEnabled;
+		if (!isFlingEnabled) {
+			stopFling();
+		}
+	}
+	
+	/**
+	 * @param friction the deceleration rate of the fling per second, larger values stop sooner
+	 */
+	public void setFlingFriction(float friction) {
+		flingDecelerator.setFriction(friction);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onDetachedFromWindow()
+	 */
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		stopFling();
+		if (isDeltaFrameScheduled) {
+			FrameClock.getInstance().removeFrameCallback(deltaFrameCallback);
+			isDeltaFrameScheduled = false;
+		}
+		pendingDelta = 0;
+		releaseVelocityTracker();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onSaveInstanceState()
+	 */
+	@Override
+	public Parcelable onSaveInstanceState() {
+		return CompactSavedState.save(super.onSaveInstanceState(), this);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onRestoreInstanceState(android.os.Parcelable)
+	 */
+	@Override
+	public void onRestoreInstanceState(Parcelable state) {
+		super.onRestoreInstanceState(CompactSavedState.getSuperState(state));
+		CompactSavedState.restore(state, this);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.CompactStateControl#writeState(jp.kshoji.android.engine.CompactStateWriter)
+	 */
+	@Override
+	public void writeState(CompactStateWriter writer) {
+		writer.beginRecord(STATE_VERSION);
+		writer.writeBoolean(isWheelDirectionClockwise, true);
+		writer.writeInt(max, 100);
+		writer.writeInt(min, 0);
+		writer.writeInt(getProgress(), (max + min) / 2);
+		writer.writeInt(textColor, Color.BLUE);
+		writer.writeInt(textSize, 12);
+		writer.writeInt(wheelColor, Color.BLACK);
+		writer.writeInt(wheelSize, 16);
+		writer.writeLong(turnAccumulator.getPosition(), 0);
+		writer.endRecord();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.CompactStateControl#readState(jp.kshoji.android.engine.CompactStateReader)
+	 */
+	@Override
+	public void readState(CompactStateReader reader) {
+		reader.beginRecord();
+		isWheelDirectionClockwise = reader.readBoolean(true);
+		max = reader.readInt(100);
+		min = reader.readInt(0);
+		lastDelta = reader.readInt((max + min) / 2) - (max + min) / 2;
+		textColor = reader.readInt(Color.BLUE);
+		textSize = reader.readInt(12);
+		wheelColor = reader.readInt(Color.BLACK);
+		wheelSize = reader.readInt(16);
+		turnAccumulator.setStepsPerTurn(1 + max - min);
+		turnAccumulator.setPosition(reader.readLong(0));
+		reader.endRecord();
+		
+		invalidate();
+	}
+	
+	/**
+	 * The progress is the movement of the last touch event offset by (max + min) / 2,
+	 * and returns to (max + min) / 2 when the touch is released.
+	 * 
+	 * @param onSeekBarChangeListener the onSeekBarChangeListener to set
+	 */
+	@Override
+	public void setOnSeekBarChangeListener(OnSeekBarChangeListener onSeekBarChangeListener) {
+		this.onSeekBarChangeListener = onSeekBarChangeListener;
+	}
+	
+	/**
+	 * @param drawMetrics records the drawing cost of this view, null to disable recording
+	 */
+	public void setDrawMetrics(DrawMetrics drawMetrics) {
+		this.drawMetrics = drawMetrics;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#invalidate()
+	 */
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		DrawMetrics.recordInvalidate(drawMetrics);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#invalidate(int, int, int, int)
+	 */
+	@Override
+	public void invalidate(int l, int t, int r, int b) {
+		super.invalidate(l, t, r, b);
+		DrawMetrics.recordInvalidate(drawMetrics);
 	}
 }
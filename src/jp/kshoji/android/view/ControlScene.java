@@ -0,0 +1,146 @@
+package jp.kshoji.android.view;
+
+import java.util.ArrayList;
+
+import jp.kshoji.android.engine.SnapshotDiff;
+
+/**
+ * Captures the values of every registered control into one int array, and applies such snapshots back.
+ * Each control occupies consecutive slots in the registration order, e.g. one for OvalSeekBar and two for BiaxialSeekBar.
+ * 
+ * Applying a snapshot touches only the controls whose values differ, and all of them are redrawn in the same frame.
+ * A snapshot is valid only while the value counts stay the same, snapshots of another length are rejected.
+ * Must be used on the UI thread.
+ */
+public final class ControlScene {
+	private final ArrayList<SceneControl> controls = new ArrayList<SceneControl>();
+	
+	// the first slot of each control, and the total at the end
+	private int[] offsets = new int[1];
+	private int[] changedSlots = new int[0];
+	
+	/**
+	 * @param control the control to capture, appended after the registered controls
+	 */
+	public void register(SceneControl control) {
+		controls.add(control);
+	}
+	
+	public void clear() {
+		controls.clear();
+	}
+	
+	/**
+	 * Recomputes the slot offsets, the value counts may change e.g. with {@link OvalKnobBank#setKnobCount(int)}.
+	 * 
+	 * @return the number of slots
+	 */
+	private int updateOffsets() {
+		final int controlCount = controls.size();
+		if (offsets.length != controlCount + 1) {
+			offsets = new int[controlCount + 1];
+		}
+		
+		int offset = 0;
+		for (int i = 0; i < controlCount; i++) {
+			offsets[i] = offset;
+			offset += controls.get(i).getSceneValueCount();
+		}
+		offsets[controlCount] = offset;
+		return offset;
+	}
+	
+	/**
+	 * @param snapshot the snapshot
+	 * @param slotCount the current number of slots
+	 */
+	private static void checkLength(int[] snapshot, int slotCount) {
+		if (snapshot.length != slotCount) {
+			throw new IllegalArgumentException("the snapshot has " + snapshot.length + " slots, the scene has " + slotCount);
+		}
+	}
+	
+	/**
+	 * @return the length of a snapshot
+	 */
+	public int getSlotCount() {
+		return updateOffsets();
+	}
+	
+	/**
+	 * @return a new snapshot of every control
+	 */
+	public int[] capture() {
+		int[] snapshot = new int[getSlotCount()];
+		capture(snapshot);
+		return snapshot;
+	}
+	
+	/**
+	 * @param snapshot the destination, {@link #getSlotCount()} long
+	 */
+	public void capture(int[] snapshot) {
+		checkLength(snapshot, updateOffsets());
+		
+		final int controlCount = controls.size();
+		for (int i = 0; i < controlCount; i++) {
+			controls.get(i).captureSceneValues(snapshot, offsets[i]);
+		}
+	}
+	
+	/**
+	 * Applies the snapshot to every control.
+	 * 
+	 * @param snapshot the snapshot
+	 */
+	public void apply(int[] snapshot) {
+		checkLength(snapshot, updateOffsets());
+		
+		final int controlCount = controls.size();
+		for (int i = 0; i < controlCount; i++) {
+			controls.get(i).applySceneValues(snapshot, offsets[i]);
+		}
+	}
+	
+	/**
+	 * Applies the snapshot to the controls whose values differ between the two snapshots.
+	 * Cheaper than {@link #apply(int[])} when the current state is known, e.g. when switching between stored scenes.
+	 * 
+	 * @param from the snapshot the controls currently show
+	 * @param to the snapshot to apply
+	 */
+	public void apply(int[] from, int[] to) {
+		final int slotCount = updateOffsets();
+		checkLength(from, slotCount);
+		checkLength(to, slotCount);
+		if (changedSlots.length < slotCount) {
+			changedSlots = new int[slotCount];
+		}
+		
+		final int changedCount = SnapshotDiff.diff(from, to, slotCount, changedSlots);
+		int lastControl = -1;
+		for (int i = 0; i < changedCount; i++) {
+			final int control = SnapshotDiff.findRange(offsets, controls.size(), changedSlots[i]);
+			if (control != lastControl) {
+				controls.get(control).applySceneValues(to, offsets[control]);
+				lastControl = control;
+			}
+		}
+	}
+	
+	/**
+	 * Animates every control to the snapshot with {@link ValueAnimationDriver}, all controls share the frame callback.
+	 * 
+	 * @param snapshot the snapshot to reach
+	 * @param durationMillis the duration
+	 */
+	public void animate(int[] snapshot, long durationMillis) {
+		checkLength(snapshot, updateOffsets());
+		
+		final ValueAnimationDriver driver = ValueAnimationDriver.getInstance();
+		final int controlCount = controls.size();
+		for (int i = 0; i < controlCount; i++) {
+			driver.animateTo(controls.get(i), snapshot, offsets[i], durationMillis);
+		}
+	}
+}
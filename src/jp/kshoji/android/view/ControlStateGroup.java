@@ -0,0 +1,102 @@
+package jp.kshoji.android.view;
+
+import java.util.ArrayList;
+
+import jp.kshoji.android.engine.CompactStateReader;
+import jp.kshoji.android.engine.CompactStateWriter;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Saves and restores every control in a view hierarchy as one compact byte array.
+ * The controls are matched by their order in the hierarchy and their view id, so the layout must be the same on restoring.
+ * 
+ * Typical use with a large control surface:
+ * call {@link #setIndividualSaveEnabled(ViewGroup, boolean)} with false once after inflating,
+ * put {@link #save(ViewGroup)} into the Bundle in onSaveInstanceState, and pass it to {@link #restore(ViewGroup, byte[])} in onRestoreInstanceState.
+ */
+public final class ControlStateGroup {
+	private static final int FORMAT_VERSION = 1;
+	
+	private ControlStateGroup() {
+	}
+	
+	/**
+	 * @param group the root of the controls
+	 * @return the state of every control
+	 */
+	public static byte[] save(ViewGroup group) {
+		ArrayList<CompactStateControl> controls = new ArrayList<CompactStateControl>();
+		collectControls(group, controls);
+		
+		CompactStateWriter writer = new CompactStateWriter();
+		writer.writeUnsignedVarint(FORMAT_VERSION);
+		writer.writeUnsignedVarint(controls.size());
+		for (int i = 0; i < controls.size(); i++) {
+			CompactStateControl control = controls.get(i);
+			writer.writeInt(((View) control).getId(), View.NO_ID);
+			control.writeState(writer);
+		}
+		return writer.toByteArray();
+	}
+	
+	/**
+	 * Restores the controls. A control whose id doesn't match the saved one keeps its current state.
+	 * 
+	 * @param group the root of the controls
+	 * @param state the value returned by {@link #save(ViewGroup)}
+	 */
+	public static void restore(ViewGroup group, byte[] state) {
+		if (state == null) {
+			return;
+		}
+		
+		ArrayList<CompactStateControl> controls = new ArrayList<CompactStateControl>();
+		collectControls(group, controls);
+		
+		CompactStateReader reader = new CompactStateReader(state);
+		if (reader.readUnsignedVarint() != FORMAT_VERSION) {
+			return;
+		}
+		final long count = reader.readUnsignedVarint();
+		for (int i = 0; i < count; i++) {
+			final int id = reader.readInt(View.NO_ID);
+			if (i < controls.size() && ((View) controls.get(i)).getId() == id) {
+				controls.get(i).readState(reader);
+			} else {
+				reader.skipRecord();
+			}
+		}
+	}
+	
+	/**
+	 * Enables or disables the state saving of each control, to avoid saving the controls twice.
+	 * 
+	 * @param group the root of the controls
+	 * @param isEnabled false if the controls are saved with {@link #save(ViewGroup)}
+	 */
+	public static void setIndividualSaveEnabled(ViewGroup group, boolean isEnabled) {
+		ArrayList<CompactStateControl> controls = new ArrayList<CompactStateControl>();
+		collectControls(group, controls);
+		
+		for (int i = 0; i < controls.size(); i++) {
+			((View) controls.get(i)).setSaveEnabled(isEnabled);
+		}
+	}
+	
+	/**
+	 * @param group the root
+	 * @param controls the controls in the hierarchy, in depth-first order
+	 */
+	private static void collectControls(ViewGroup group, ArrayList<CompactStateControl> controls) {
+		final int childCount = group.getChildCount();
+		for (int i = 0; i < childCount; i++) {
+			View child = group.getChildAt(i);
+			if (child instanceof CompactStateControl) {
+				controls.add((CompactStateControl) child);
+			} else if (child instanceof ViewGroup) {
+				collectControls((ViewGroup) child, controls);
+			}
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package jp.kshoji.android.view;
+
+import jp.kshoji.android.engine.DurationHistogram;
+import jp.kshoji.android.engine.SampleRingBuffer;
+import jp.kshoji.android.listener.OnDrawMetricsListener;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.view.View;
+
+/**
+ * Records the drawing cost of a view. Set an instance with setDrawMetrics on the view to enable recording.
+ * When no instance is set, the view only performs a null check.
+ * 
+ * All methods must be called on the UI thread.
+ */
+public final class DrawMetrics {
+	public static final int DEFAULT_CAPACITY = 256;
+	
+	private final DurationHistogram drawDurationHistogram = new DurationHistogram();
+	private final SampleRingBuffer drawDurations;
+	private final SampleRingBuffer drawCallCounts;
+	private final SampleRingBuffer touchToDrawLatencies;
+	private final SampleRingBuffer allocationCounts;
+	private OnDrawMetricsListener onDrawMetricsListener;
+	private boolean isAllocationCountingEnabled;
+	
+	// current frame
+	private long drawStartNanos;
+	private int drawCallCount;
+	private int drawStartAllocationCount;
+	private long pendingTouchTime = -1;
+	
+	// invalidations counted in one second windows
+	private long invalidationWindowStart;
+	private int invalidationCount;
+	private int invalidationsPerSecond;
+	
+	public DrawMetrics() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * @param capacity the number of frames kept in each sample buffer
+	 */
+	public DrawMetrics(int capacity) {
+		drawDurations = new SampleRingBuffer(capacity);
+		drawCallCounts = new SampleRingBuffer(capacity);
+		touchToDrawLatencies = new SampleRingBuffer(capacity);
+		allocationCounts = new SampleRingBuffer(capacity);
+	}
+	
+	/**
+	 * @param onDrawMetricsListener called after each measured frame, null to only record
+	 */
+	public void setOnDrawMetricsListener(OnDrawMetricsListener onDrawMetricsListener) {
+		this.onDrawMetricsListener = onDrawMetricsListener;
+	}
+	
+	/**
+	 * Enables counting allocations on the UI thread during onDraw.
+	 * This uses {@link Debug#startAllocCounting()}, which slows down allocations, so enable it only while profiling.
+	 * 
+	 * @param isAllocationCountingEnabled true to count
+	 */
+	@SuppressWarnings("deprecation")
+	public void setAllocationCountingEnabled(boolean isAllocationCountingEnabled) {
+		if (this.isAllocationCountingEnabled == isAllocationCountingEnabled) {
+			return;
+		}
+		this.isAllocationCountingEnabled = isAllocationCountingEnabled;
+		if (isAllocationCountingEnabled) {
+			Debug.startAllocCounting();
+		} else {
+			Debug.stopAllocCounting();
+		}
+	}
+	
+	@SuppressWarnings("deprecation")
+	void beginDraw() {
+		drawCallCount = 0;
+		if (isAllocationCountingEnabled) {
+			drawStartAllocationCount = Debug.getThreadAllocCount();
+		}
+		drawStartNanos = System.nanoTime();
+	}
+	
+	void countDrawCalls(int count) {
+		drawCallCount += count;
+	}
+	
+	@SuppressWarnings("deprecation")
+	void endDraw(View view) {
+		final long drawDurationNanos = System.nanoTime() - drawStartNanos;
+		long allocationCount = -1;
+		if (isAllocationCountingEnabled) {
+			allocationCount = Debug.getThreadAllocCount() - drawStartAllocationCount;
+			allocationCounts.add(allocationCount);
+		}
+		
+		long touchToDrawMillis = -1;
+		if (pendingTouchTime >= 0) {
+			touchToDrawMillis = SystemClock.uptimeMillis() - pendingTouchTime;
+			touchToDrawLatencies.add(touchToDrawMillis);
+			pendingTouchTime = -1;
+		}
+		
+		drawDurationHistogram.record(drawDurationNanos);
+		drawDurations.add(drawDurationNanos);
+		drawCallCounts.add(drawCallCount);
+		
+		if (onDrawMetricsListener != null) {
+			onDrawMetricsListener.onDrawMeasured(view, drawDurationNanos, drawCallCount, touchToDrawMillis, allocationCount);
+		}
+	}
+	
+	void onInvalidate() {
+		final long now = SystemClock.uptimeMillis();
+		if (now - invalidationWindowStart >= 1000) {
+			invalidationsPerSecond = now - invalidationWindowStart < 2000 ? invalidationCount : 0;
+			invalidationWindowStart = now;
+			invalidationCount = 0;
+		}
+		invalidationCount++;
+	}
+	
+	/**
+	 * @param eventTime the event time of the touch, in {@link SystemClock#uptimeMillis()} time base
+	 */
+	void onTouch(long eventTime) {
+		if (pendingTouchTime < 0) {
+			// measure from the oldest touch not drawn yet
+			pendingTouchTime = eventTime;
+		}
+	}
+	
+	/**
+	 * Called from the invalidate overrides of the views.
+	 * 
+	 * @param metrics the metrics set on the view, may be null
+	 */
+	static void recordInvalidate(DrawMetrics metrics) {
+		if (metrics != null) {
+			metrics.onInvalidate();
+		}
+	}
+	
+	/**
+	 * Called from onTouchEvent of the views.
+	 * 
+	 * @param metrics the metrics set on the view, may be null
+	 * @param eventTime the event time of the touch
+	 */
+	static void recordTouch(DrawMetrics metrics, long eventTime) {
+		if (metrics != null) {
+			metrics.onTouch(eventTime);
+		}
+	}
+	
+	/**
+	 * @return the histogram of onDraw durations, since creation or {@link #clear()}
+	 */
+	public DurationHistogram getDrawDurationHistogram() {
+		return drawDurationHistogram;
+	}
+	
+	/**
+	 * @return the latest onDraw durations in nanoseconds
+	 */
+	public SampleRingBuffer getDrawDurations() {
+		return drawDurations;
+	}
+	
+	/**
+	 * @return the latest canvas draw call counts of each frame
+	 */
+	public SampleRingBuffer getDrawCallCounts() {
+		return drawCallCounts;
+	}
+	
+	/**
+	 * @return the latest touch to draw latencies in milliseconds
+	 */
+	public SampleRingBuffer getTouchToDrawLatencies() {
+		return touchToDrawLatencies;
+	}
+	
+	/**
+	 * @return the latest allocation counts of each frame, recorded only when allocation counting is enabled
+	 */
+	public SampleRingBuffer getAllocationCounts() {
+		return allocationCounts;
+	}
+	
+	/**
+	 * @return the number of invalidations during the latest complete one second window
+	 */
+	public int getInvalidationsPerSecond() {
+		return invalidationsPerSecond;
+	}
+	
+	public void clear() {
+		drawDurationHistogram.clear();
+		drawDurations.clear();
+		drawCallCounts.clear();
+		touchToDrawLatencies.clear();
+		allocationCounts.clear();
+		pendingTouchTime = -1;
+		invalidationWindowStart = 0;
+		invalidationCount = 0;
+		invalidationsPerSecond = 0;
+	}
+}
@@ -0,0 +1,120 @@
+package jp.kshoji.android.view;
+
+import java.util.ArrayList;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * Dispatches frame callbacks on the UI thread, once per display frame.
+ * Uses {@link Choreographer} on Jelly Bean or later, and a 16ms {@link Handler} tick on older platforms.
+ * 
+ * All methods must be called on the UI thread. Callbacks are one-shot, post again to receive the next frame.
+ */
+final class FrameClock {
+	private static final long FALLBACK_FRAME_DELAY_MILLIS = 16;
+	private static FrameClock instance;
+	
+	interface FrameCallback {
+		
+		/**
+		 * Called on the UI thread when a new frame begins.
+		 * 
+		 * @param frameTimeNanos the frame time, in {@link System#nanoTime()} time base
+		 */
+		void doFrame(long frameTimeNanos);
+	}
+	
+	private final ArrayList<FrameCallback> callbacks = new ArrayList<FrameCallback>();
+	private FrameCallback[] dispatchingCallbacks = new FrameCallback[16];
+	private boolean isFrameScheduled;
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private final Runnable fallbackTick = new Runnable() {
+		
+		@Override
+		public void run() {
+			dispatchFrame(System.nanoTime());
+		}
+	};
+	private Object choreographerCallback;
+	
+	private FrameClock() {
+	}
+	
+	/**
+	 * @return the frame clock bound to the main looper
+	 */
+	static FrameClock getInstance() {
+		if (instance == null) {
+			instance = new FrameClock();
+		}
+		return instance;
+	}
+	
+	/**
+	 * Requests a call to the callback on the next frame. Posting the same callback twice has no effect.
+	 * 
+	 * @param callback the callback
+	 */
+	void postFrameCallback(FrameCallback callback) {
+		if (callbacks.contains(callback)) {
+			return;
+		}
+		callbacks.add(callback);
+		
+		if (!isFrameScheduled) {
+			isFrameScheduled = true;
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+				scheduleChoreographerFrame();
+			} else {
+				handler.postDelayed(fallbackTick, FALLBACK_FRAME_DELAY_MILLIS);
+			}
+		}
+	}
+	
+	/**
+	 * Removes the pending callback.
+	 * 
+	 * @param callback the callback
+	 */
+	void removeFrameCallback(FrameCallback callback) {
+		callbacks.remove(callback);
+	}
+	
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private void scheduleChoreographerFrame() {
+		if (choreographerCallback == null) {
+			choreographerCallback = new Choreographer.FrameCallback() {
+				
+				@Override
+				public void doFrame(long frameTimeNanos) {
+					dispatchFrame(frameTimeNanos);
+				}
+			};
+		}
+		Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) choreographerCallback);
+	}
+	
+	private void dispatchFrame(long frameTimeNanos) {
+		isFrameScheduled = false;
+		
+		// callbacks posted while dispatching run on the next frame
+		final int count = callbacks.size();
+		if (dispatchingCallbacks.length < count) {
+			dispatchingCallbacks = new FrameCallback[count * 2];
+		}
+		for (int i = 0; i < count; i++) {
+			dispatchingCallbacks[i] = callbacks.get(i);
+		}
+		callbacks.clear();
+		
+		for (int i = 0; i < count; i++) {
+			FrameCallback callback = dispatchingCallbacks[i];
+			dispatchingCallbacks[i] = null;
+			callback.doFrame(frameTimeNanos);
+		}
+	}
+}
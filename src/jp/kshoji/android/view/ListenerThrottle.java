@@ -0,0 +1,94 @@
+package jp.kshoji.android.view;
+
+import android.os.SystemClock;
+import android.view.View;
+
+/**
+ * Limits how often a change listener is called while tracking a touch.
+ * 
+ * With a rate limit, calls closer than the interval are merged into one trailing call.
+ * With a debounce time, the call is made only after no change happened for that time.
+ * The delivery runnable should read the latest value, so that the merged call reports it.
+ * 
+ * All methods must be called on the UI thread.
+ */
+final class ListenerThrottle implements Runnable {
+	private final View view;
+	private final Runnable delivery;
+	private long minIntervalMillis;
+	private long debounceMillis;
+	private long lastDeliveryTime = Long.MIN_VALUE / 2;
+	private boolean isPending;
+	
+	/**
+	 * @param view the view to post the delayed delivery
+	 * @param delivery calls the listener with the latest value
+	 */
+	ListenerThrottle(View view, Runnable delivery) {
+		this.view = view;
+		this.delivery = delivery;
+	}
+	
+	/**
+	 * @param minIntervalMillis the minimum interval between two calls, 0 to disable
+	 */
+	void setMinInterval(long minIntervalMillis) {
+		this.minIntervalMillis = minIntervalMillis;
+	}
+	
+	/**
+	 * @param debounceMillis the quiet time before a call, 0 to disable
+	 */
+	void setDebounce(long debounceMillis) {
+		this.debounceMillis = debounceMillis;
+	}
+	
+	/**
+	 * Requests a call for a changed value.
+	 */
+	void request() {
+		if (debounceMillis > 0) {
+			view.removeCallbacks(this);
+			view.postDelayed(this, debounceMillis);
+			isPending = true;
+			return;
+		}
+		
+		final long now = SystemClock.uptimeMillis();
+		final long elapsed = now - lastDeliveryTime;
+		if (minIntervalMillis > 0 && elapsed < minIntervalMillis) {
+			if (!isPending) {
+				view.postDelayed(this, minIntervalMillis - elapsed);
+				isPending = true;
+			}
+			return;
+		}
+		
+		deliver(now);
+	}
+	
+	/**
+	 * Drops the pending call, used when the final value is delivered anyway.
+	 */
+	void cancel() {
+		if (isPending) {
+			view.removeCallbacks(this);
+			isPending = false;
+		}
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		deliver(SystemClock.uptimeMillis());
+	}
+	
+	private void deliver(long now) {
+		isPending = false;
+		lastDeliveryTime = now;
+		delivery.run();
+	}
+}
@@ -0,0 +1,661 @@
+package jp.kshoji.android.view;
+
+import jp.kshoji.android.engine.CompactStateReader;
+import jp.kshoji.android.engine.CompactStateWriter;
+import jp.kshoji.android.engine.OvalHitTester;
+import jp.kshoji.android.engine.OvalSegmentTable;
+import jp.kshoji.android.listener.OnOvalKnobBankChangeListener;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.os.Parcelable;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Many oval knobs in one view, laid out on a grid.
+ * Every knob shares the same range, Paints, segment geometry and cached wheel bitmap, so the cost of each knob is one bitmap draw and its pointer.
+ * Touches are routed to the knob under the grid cell, and each pointer tracks its own knob.
+ */
+public class OvalKnobBank extends View implements CompactStateControl, SceneControl {
+	public static final int MAX_POINTER_COUNT = 10;
+	private static final int STATE_VERSION = 1;
+	
+	private Paint wheelPaint;
+	private Paint pointerPaint;
+	private Paint textPaint;
+	private final ValueTextRenderer valueTextRenderer = new ValueTextRenderer();
+	
+	// view configuration, shared by every knob
+	private int knobCount;
+	private int columnCount;
+	private int wheelSize;
+	private int wheelColor;
+	private int wheelValueSeparatorSizeAngle;
+	private int wheelZeroAngle;
+	private int wheelWholeAngle;
+	private int pointerSizeAngle;
+	private int pointerColor;
+	private int pointerType;
+	private boolean isWheelDirectionClockwise;
+	private int textSize;
+	private int textColor;
+	private int min;
+	private int max;
+	private int[] progress;
+	
+	// the grid and the knob geometry, rebuilt only when size or configuration changes
+	private boolean isGeometryDirty = true;
+	private int rowCount;
+	private float cellWidth;
+	private float cellHeight;
+	private float wheelRadius;
+	private final RectF wheelRectangle = new RectF();
+	private final OvalSegmentTable segmentTable = new OvalSegmentTable();
+	private final OvalHitTester hitTester = new OvalHitTester();
+	private boolean isBatchedRendering;
+	private Bitmap wheelBitmap;
+	
+	// the knob tracked by each pointer id, -1 for none
+	private final int[] touchedKnobs = new int[MAX_POINTER_COUNT];
+	
+	private OnOvalKnobBankChangeListener onOvalKnobBankChangeListener;
+	private DrawMetrics drawMetrics;
+	
+	public OvalKnobBank(Context context) {
+		super(context);
+		init(null, 0);
+	}
+	
+	public OvalKnobBank(Context context, AttributeSet attrs) {
+		super(context, attrs);
+		init(attrs, 0);
+	}
+	
+	public OvalKnobBank(Context context, AttributeSet attrs, int defStyle) {
+		super(context, attrs, defStyle);
+		init(attrs, defStyle);
+	}
+	
+	private void init(AttributeSet attrs, int defStyle) {
+		final TypedArray typedArray = getContext().obtainStyledAttributes(attrs, R.styleable.OvalKnobBank, defStyle, 0);
+		
+		knobCount = Math.max(typedArray.getInt(R.styleable.OvalKnobBank_knobCount, 8), 0);
+		columnCount = Math.max(typedArray.getInt(R.styleable.OvalKnobBank_columnCount, 8), 1);
+		
+		wheelSize = typedArray.getDimensionPixelSize(R.styleable.OvalKnobBank_wheelSize, 16);
+		wheelColor = typedArray.getColor(R.styleable.OvalKnobBank_wheelColor, Color.BLACK);
+		wheelValueSeparatorSizeAngle = typedArray.getInt(R.styleable.OvalKnobBank_wheelValueSeparatorSizeAngle, 0);
+		wheelZeroAngle = typedArray.getInt(R.styleable.OvalKnobBank_wheelZeroAngle, 0);
+		wheelWholeAngle = typedArray.getInt(R.styleable.OvalKnobBank_wheelWholeAngle, 270);
+		
+		pointerSizeAngle = typedArray.getInt(R.styleable.OvalKnobBank_pointerSizeAngle, 48);
+		pointerColor = typedArray.getColor(R.styleable.OvalKnobBank_pointerColor, Color.CYAN);
+		pointerType = typedArray.getInt(R.styleable.OvalKnobBank_pointerType, 0);
+		isWheelDirectionClockwise = typedArray.getInt(R.styleable.OvalKnobBank_wheelDirection, 0) == 0;
+		
+		min = typedArray.getInt(R.styleable.OvalKnobBank_min, 0);
+		
+		textSize = typedArray.getDimensionPixelSize(R.styleable.OvalKnobBank_android_textSize, 12);
+		textColor = typedArray.getColor(R.styleable.OvalKnobBank_android_textColor, Color.BLUE);
+		max = typedArray.getInt(R.styleable.OvalKnobBank_android_max, 100);
+		
+		typedArray.recycle();
+		
+		progress = new int[knobCount];
+		for (int i = 0; i < knobCount; i++) {
+			progress[i] = min;
+		}
+		for (int id = 0; id < MAX_POINTER_COUNT; id++) {
+			touchedKnobs[id] = -1;
+		}
+		
+		wheelPaint = PaintCache.getStrokePaint(wheelColor, wheelSize);
+		pointerPaint = PaintCache.getStrokePaint(pointerColor, wheelSize);
+		textPaint = PaintCache.getCenteredTextPaint(textColor, textSize);
+		valueTextRenderer.setTextPaint(textPaint);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onMeasure(int, int)
+	 */
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		final int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
+		
+		// square cells by default
+		final int rows = (knobCount + columnCount - 1) / columnCount;
+		final int height = resolveSize(width * rows / columnCount, heightMeasureSpec);
+		setMeasuredDimension(width, height);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onSizeChanged(int, int, int, int)
+	 */
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		updateGeometry();
+	}
+	
+	/**
+	 * Rebuilds the grid, and the geometry shared by every knob.
+	 */
+	private void updateGeometry() {
+		rowCount = (knobCount + columnCount - 1) / columnCount;
+		cellWidth = (float) getWidth() / columnCount;
+		cellHeight = rowCount > 0 ? (float) getHeight() / rowCount : 0f;
+		
+		wheelRadius = Math.min(cellWidth, cellHeight) * 0.5f;
+		wheelRectangle.set(-wheelRadius + wheelSize / 2, -wheelRadius + wheelSize / 2, wheelRadius - wheelSize / 2, wheelRadius - wheelSize / 2);
+		
+		segmentTable.update(min, max, wheelZeroAngle, wheelWholeAngle, isWheelDirectionClockwise, wheelValueSeparatorSizeAngle, pointerSizeAngle);
+		
+		// segments narrower than a pixel are drawn as one arc per run
+		final float segmentPixels = (float) (wheelRectangle.width() * 0.5 * Math.toRadians(segmentTable.getSegmentAngle()));
+		isBatchedRendering = segmentPixels < 1f;
+		
+		hitTester.setGeometry(min, max, wheelZeroAngle, wheelWholeAngle, isWheelDirectionClockwise);
+		
+		isGeometryDirty = false;
+		releaseWheelBitmap();
+	}
+	
+	/**
+	 * Draws the contiguous segments from fromIndex to toIndex.
+	 * 
+	 * @param canvas translated to the knob center
+	 * @param fromIndex the first segment index
+	 * @param toIndex the last segment index, inclusive
+	 * @param paint the paint
+	 * @return the number of draw calls
+	 */
+	private int drawSegments(Canvas canvas, int fromIndex, int toIndex, Paint paint) {
+		if (fromIndex > toIndex) {
+			return 0;
+		}
+		
+		if (isBatchedRendering) {
+			canvas.drawArc(wheelRectangle, segmentTable.getRunStartAngle(fromIndex, toIndex), segmentTable.getRunSweepAngle(fromIndex, toIndex), false, paint);
+			return 1;
+		}
+		
+		final float[] startAngles = segmentTable.getStartAngles();
+		final float sweepAngle = segmentTable.getSweepAngle();
+		for (int index = fromIndex; index <= toIndex; index++) {
+			canvas.drawArc(wheelRectangle, startAngles[index], sweepAngle, false, paint);
+		}
+		return toIndex - fromIndex + 1;
+	}
+	
+	/**
+	 * Draws the pointer (or the value segments) of a knob.
+	 * 
+	 * @param canvas translated to the knob center
+	 * @param progressIndex the segment index of the progress
+	 * @return the number of draw calls
+	 */
+	private int drawPointer(Canvas canvas, int progressIndex) {
+		if (pointerType == 0) {
+			// pointer
+			if (progressIndex >= 0 && progressIndex < segmentTable.getSegmentCount()) {
+				canvas.drawArc(wheelRectangle, segmentTable.getStartAngles()[progressIndex] + segmentTable.getPointerStartAngleOffset(), segmentTable.getPointerSweepAngle(), false, pointerPaint);
+				return 1;
+			}
+			return 0;
+		}
+		
+		// value
+		return drawSegments(canvas, 0, Math.min(progressIndex, segmentTable.getSegmentCount() - 1), pointerPaint);
+	}
+	
+	/**
+	 * Renders the wheel segments once, the bitmap is drawn for every knob.
+	 */
+	private void renderWheelBitmap() {
+		final int size = (int) Math.ceil(wheelRadius * 2f);
+		if (size <= 0) {
+			return;
+		}
+		
+		wheelBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+		Canvas wheelCanvas = new Canvas(wheelBitmap);
+		wheelCanvas.translate(wheelRadius, wheelRadius);
+		drawSegments(wheelCanvas, 0, segmentTable.getSegmentCount() - 1, wheelPaint);
+	}
+	
+	private void releaseWheelBitmap() {
+		if (wheelBitmap != null) {
+			wheelBitmap.recycle();
+			wheelBitmap = null;
+		}
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onDetachedFromWindow()
+	 */
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		ValueAnimationDriver.cancelIfRunning(this);
+		releaseWheelBitmap();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onDraw(android.graphics.Canvas)
+	 */
+	@Override
+	protected void onDraw(Canvas canvas) {
+		final DrawMetrics metrics = drawMetrics;
+		if (metrics != null) {
+			metrics.beginDraw();
+		}
+		
+		if (isGeometryDirty) {
+			updateGeometry();
+		}
+		if (wheelBitmap == null) {
+			renderWheelBitmap();
+		}
+		
+		int drawCallCount = 0;
+		for (int index = 0; index < knobCount; index++) {
+			final float centerX = (index % columnCount + 0.5f) * cellWidth;
+			final float centerY = (index / columnCount + 0.5f) * cellHeight;
+			
+			// knobs outside the dirty region are skipped
+			if (canvas.quickReject(centerX - wheelRadius, centerY - wheelRadius, centerX + wheelRadius, centerY + wheelRadius, Canvas.EdgeType.AA)) {
+				continue;
+			}
+			
+			canvas.translate(centerX, centerY);
+			if (wheelBitmap != null) {
+				canvas.drawBitmap(wheelBitmap, -wheelRadius, -wheelRadius, null);
+				drawCallCount++;
+			}
+			drawCallCount += drawPointer(canvas, progress[index] - min);
+			valueTextRenderer.draw(canvas, 0, 0, progress[index]);
+			drawCallCount++;
+			canvas.translate(-centerX, -centerY);
+		}
+		
+		if (metrics != null) {
+			metrics.countDrawCalls(drawCallCount);
+			metrics.endDraw(this);
+		}
+	}
+	
+	/**
+	 * Invalidates only the cell of the knob.
+	 * 
+	 * @param index the knob index
+	 */
+	private void invalidateKnob(int index) {
+		final int left = (int) ((index % columnCount) * cellWidth);
+		final int top = (int) ((index / columnCount) * cellHeight);
+		invalidate(left, top, (int) Math.ceil(left + cellWidth) + 1, (int) Math.ceil(top + cellHeight) + 1);
+	}
+	
+	/**
+	 * Finds the knob at the position, in constant time from the grid cell.
+	 * 
+	 * @param x the x position
+	 * @param y the y position
+	 * @return the knob index, -1 if no knob is at the position
+	 */
+	private int findKnob(float x, float y) {
+		if (isGeometryDirty) {
+			updateGeometry();
+		}
+		if (x < 0 || y < 0 || cellWidth <= 0 || cellHeight <= 0) {
+			return -1;
+		}
+		
+		final int column = (int) (x / cellWidth);
+		final int row = (int) (y / cellHeight);
+		if (column >= columnCount || row >= rowCount) {
+			return -1;
+		}
+		final int index = row * columnCount + column;
+		if (index >= knobCount) {
+			return -1;
+		}
+		
+		final float dx = x - (column + 0.5f) * cellWidth;
+		final float dy = y - (row + 0.5f) * cellHeight;
+		if (dx * dx + dy * dy > wheelRadius * wheelRadius) {
+			return -1;
+		}
+		return index;
+	}
+	
+	/**
+	 * Moves the knob to the touched angle.
+	 * 
+	 * @param index the knob index
+	 * @param x the x position
+	 * @param y the y position
+	 */
+	private void updateKnob(int index, float x, float y) {
+		final float centerX = (index % columnCount + 0.5f) * cellWidth;
+		final float centerY = (index / columnCount + 0.5f) * cellHeight;
+		final int clickedProgress = hitTester.getProgress(x - centerX, y - centerY);
+		
+		if (clickedProgress != progress[index]) {
+			progress[index] = clickedProgress;
+			invalidateKnob(index);
+			
+			if (onOvalKnobBankChangeListener != null) {
+				onOvalKnobBankChangeListener.onProgressChanged(this, index, clickedProgress, true);
+			}
+		}
+	}
+	
+	/**
+	 * @param id the pointer id
+	 */
+	private void releaseKnob(int id) {
+		final int index = touchedKnobs[id];
+		touchedKnobs[id] = -1;
+		
+		if (index >= 0 && onOvalKnobBankChangeListener != null) {
+			onOvalKnobBankChangeListener.onStopTrackingTouch(this, index);
+		}
+	}
+	
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		DrawMetrics.recordTouch(drawMetrics, event.getEventTime());
+		
+		final int actionIndex = event.getActionIndex();
+		
+		switch (event.getActionMasked()) {
+			case MotionEvent.ACTION_DOWN:
+			case MotionEvent.ACTION_POINTER_DOWN: {
+				final int id = event.getPointerId(actionIndex);
+				if (id >= MAX_POINTER_COUNT) {
+					break;
+				}
+				
+				final int index = findKnob(event.getX(actionIndex), event.getY(actionIndex));
+				touchedKnobs[id] = index;
+				if (index >= 0) {
+					// the other knobs keep animating
+					ValueAnimationDriver.cancelIfRunning(this, index);
+					if (onOvalKnobBankChangeListener != null) {
+						onOvalKnobBankChangeListener.onStartTrackingTouch(this, index);
+					}
+					updateKnob(index, event.getX(actionIndex), event.getY(actionIndex));
+				}
+				break;
+			}
+			case MotionEvent.ACTION_MOVE: {
+				final int pointerCount = event.getPointerCount();
+				for (int i = 0; i < pointerCount; i++) {
+					final int id = event.getPointerId(i);
+					if (id < MAX_POINTER_COUNT && touchedKnobs[id] >= 0) {
+						updateKnob(touchedKnobs[id], event.getX(i), event.getY(i));
+					}
+				}
+				break;
+			}
+			case MotionEvent.ACTION_UP:
+			case MotionEvent.ACTION_POINTER_UP: {
+				final int id = event.getPointerId(actionIndex);
+				if (id < MAX_POINTER_COUNT && touchedKnobs[id] >= 0) {
+					updateKnob(touchedKnobs[id], event.getX(actionIndex), event.getY(actionIndex));
+					releaseKnob(id);
+				}
+				break;
+			}
+			case MotionEvent.ACTION_CANCEL:
+				for (int id = 0; id < MAX_POINTER_COUNT; id++) {
+					releaseKnob(id);
+				}
+				break;
+		}
+		return true;
+	}
+	
+	/**
+	 * @param index the knob index
+	 * @return the progress of the knob
+	 */
+	public int getProgress(int index) {
+		return progress[index];
+	}
+	
+	/**
+	 * @param index the knob index
+	 * @param progress the progress, clamped into [min, max]
+	 */
+	public void setProgress(int index, int progress) {
+		if (progress < min) {
+			progress = min;
+		}
+		if (progress > max) {
+			progress = max;
+		}
+		
+		if (this.progress[index] != progress) {
+			this.progress[index] = progress;
+			invalidateKnob(index);
+		}
+	}
+	
+	/**
+	 * Changes the number of knobs, keeping the progress of the remaining knobs.
+	 * 
+	 * @param knobCount the number of knobs
+	 */
+	public void setKnobCount(int knobCount) {
+		knobCount = Math.max(knobCount, 0);
+		
+		int[] newProgress = new int[knobCount];
+		for (int i = 0; i < knobCount; i++) {
+			newProgress[i] = i < this.knobCount ? progress[i] : min;
+		}
+		progress = newProgress;
+		this.knobCount = knobCount;
+		
+		for (int id = 0; id < MAX_POINTER_COUNT; id++) {
+			if (touchedKnobs[id] >= knobCount) {
+				touchedKnobs[id] = -1;
+			}
+		}
+		isGeometryDirty = true;
+		
+		requestLayout();
+		invalidate();
+	}
+	
+	public int getKnobCount() {
+		return knobCount;
+	}
+	
+	/**
+	 * @param columnCount the number of knobs in a row
+	 */
+	public void setColumnCount(int columnCount) {
+		this.columnCount = Math.max(columnCount, 1);
+		isGeometryDirty = true;
+		
+		requestLayout();
+		invalidate();
+	}
+	
+	public int getColumnCount() {
+		return columnCount;
+	}
+	
+	/**
+	 * Changes the range of every knob. The progress is clamped into the new range.
+	 * 
+	 * @param min the min value
+	 * @param max the max value
+	 */
+	public void setRange(int min, int max) {
+		this.min = min;
+		this.max = max;
+		for (int i = 0; i < knobCount; i++) {
+			progress[i] = Math.max(min, Math.min(max, progress[i]));
+		}
+		isGeometryDirty = true;
+		
+		invalidate();
+	}
+	
+	public int getMin() {
+		return min;
+	}
+	
+	public int getMax() {
+		return max;
+	}
+	
+	/**
+	 * @param valueFormatter the formatter for the knob labels, null to draw the integer value
+	 */
+	public void setValueFormatter(ValueFormatter valueFormatter) {
+		valueTextRenderer.setValueFormatter(valueFormatter);
+		
+		invalidate();
+	}
+	
+	/**
+	 * @param onOvalKnobBankChangeListener the onOvalKnobBankChangeListener to set
+	 */
+	public void setOnOvalKnobBankChangeListener(OnOvalKnobBankChangeListener onOvalKnobBankChangeListener) {
+		this.onOvalKnobBankChangeListener = onOvalKnobBankChangeListener;
+	}
+	
+	/**
+	 * @param drawMetrics records the drawing cost of this view, null to disable recording
+	 */
+	public void setDrawMetrics(DrawMetrics drawMetrics) {
+		this.drawMetrics = drawMetrics;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#invalidate()
+	 */
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		DrawMetrics.recordInvalidate(drawMetrics);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#invalidate(int, int, int, int)
+	 */
+	@Override
+	public void invalidate(int l, int t, int r, int b) {
+		super.invalidate(l, t, r, b);
+		DrawMetrics.recordInvalidate(drawMetrics);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onSaveInstanceState()
+	 */
+	@Override
+	public Parcelable onSaveInstanceState() {
+		return CompactSavedState.save(super.onSaveInstanceState(), this);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onRestoreInstanceState(android.os.Parcelable)
+	 */
+	@Override
+	public void onRestoreInstanceState(Parcelable state) {
+		super.onRestoreInstanceState(CompactSavedState.getSuperState(state));
+		CompactSavedState.restore(state, this);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.CompactStateControl#writeState(jp.kshoji.android.engine.CompactStateWriter)
+	 */
+	@Override
+	public void writeState(CompactStateWriter writer) {
+		writer.beginRecord(STATE_VERSION);
+		writer.writeInt(min, 0);
+		writer.writeInt(max, 100);
+		writer.writeInt(knobCount, 8);
+		for (int i = 0; i < knobCount; i++) {
+			writer.writeInt(progress[i], min);
+		}
+		writer.endRecord();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.CompactStateControl#readState(jp.kshoji.android.engine.CompactStateReader)
+	 */
+	@Override
+	public void readState(CompactStateReader reader) {
+		reader.beginRecord();
+		min = reader.readInt(0);
+		max = reader.readInt(100);
+		knobCount = Math.max(reader.readInt(8), 0);
+		progress = new int[knobCount];
+		for (int i = 0; i < knobCount; i++) {
+			progress[i] = reader.readInt(min);
+		}
+		reader.endRecord();
+		
+		for (int id = 0; id < MAX_POINTER_COUNT; id++) {
+			touchedKnobs[id] = -1;
+		}
+		isGeometryDirty = true;
+		requestLayout();
+		invalidate();
+	}
+	
+	/**
+	 * The count changes with {@link #setKnobCount(int)}, a snapshot of another count is clipped to the knobs both have.
+	 * 
+	 * @return the number of knobs
+	 */
+	@Override
+	public int getSceneValueCount() {
+		return knobCount;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.SceneControl#captureSceneValues(int[], int)
+	 */
+	@Override
+	public void captureSceneValues(int[] snapshot, int offset) {
+		System.arraycopy(progress, 0, snapshot, offset, Math.min(knobCount, snapshot.length - offset));
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.SceneControl#applySceneValues(int[], int)
+	 */
+	@Override
+	public void applySceneValues(int[] snapshot, int offset) {
+		final int count = Math.min(knobCount, snapshot.length - offset);
+		for (int i = 0; i < count; i++) {
+			final int value = Math.max(min, Math.min(max, snapshot[offset + i]));
+			if (progress[i] != value) {
+				progress[i] = value;
+				invalidateKnob(i);
+			}
+		}
+	}
+}
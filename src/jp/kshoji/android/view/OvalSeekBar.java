@@ -1,25 +1,39 @@
 package jp.kshoji.android.view;
 
+import jp.kshoji.android.engine.CompactStateReader;
+import jp.kshoji.android.engine.CompactStateWriter;
+import jp.kshoji.android.engine.AccelerationCurve;
+import jp.kshoji.android.engine.OvalHitTester;
+import jp.kshoji.android.engine.OvalSegmentTable;
+import jp.kshoji.android.listener.OnFineProgressChangeListener;
+import jp.kshoji.android.listener.OnProgressBatchListener;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Paint.Align;
+import android.graphics.Matrix;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.Shader;
 import android.graphics.drawable.AnimationDrawable;
 import android.graphics.drawable.Drawable;
-import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.widget.SeekBar;
 
-public class OvalSeekBar extends SeekBar {
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+public class OvalSeekBar extends SeekBar implements CompactStateControl, SceneControl {
+	private static final int STATE_VERSION = 1;
+	
 	private Paint wheelPaint;
 	private Paint pointerPaint;
 	private Paint textPaint;
+	private final ValueTextRenderer valueTextRenderer = new ValueTextRenderer();
 	private float wheelRadius;
 	private RectF wheelRectangle = new RectF();
 	private boolean onPointer = false;
@@ -35,16 +49,52 @@ public class OvalSeekBar extends SeekBar {
 	private boolean isWheelDirectionClockwise;
 	private int textSize;
 	private int textColor;
-	private int progress;
-	private int min;
-	private int max;
+	private volatile long progressState;
+	private volatile int min;
+	private volatile int max;
 	private int wheelZeroAngle;
 	private int wheelWholeAngle;
 	private Drawable progressDrawable;
 	private int progressDrawableSize;
+	
+	// fine progress mode, enabled when tickCount is positive
+	private volatile int tickCount;
+	private volatile float fineProgress;
+	private OnFineProgressChangeListener onFineProgressChangeListener;
+	
+	// relative dragging with the acceleration curve, enabled when accelerationCurve is set
+	private AccelerationCurve accelerationCurve;
+	private double acceleratedProgress;
+	private double lastTouchUnit;
+	private float lastTouchX;
+	private float lastTouchY;
+	private long lastTouchTime;
 
 	
 	private OnSeekBarChangeListener onSeekBarChangeListener;
+	private DrawMetrics drawMetrics;
+	private final ListenerThrottle listenerThrottle = new ListenerThrottle(this, new Runnable() {
+		
+		@Override
+		public void run() {
+			if (onSeekBarChangeListener != null) {
+				onSeekBarChangeListener.onProgressChanged(OvalSeekBar.this, getProgress(), true);
+			}
+		}
+	});
+	private OnProgressBatchListener onProgressBatchListener;
+	private final TouchSampleBuffer touchSamples = new TouchSampleBuffer(1);
+	private final CoalescedValueFeed progressFeed = new CoalescedValueFeed(new CoalescedValueFeed.Target() {
+		
+		@Override
+		public void onValuesCoalesced(int[] values, long[] eventTimes, int sampleCount) {
+			setProgress(values[sampleCount - 1]);
+			
+			if (onProgressBatchListener != null) {
+				onProgressBatchListener.onProgressBatch(OvalSeekBar.this, values, eventTimes, sampleCount, 1, false);
+			}
+		}
+	}, 1);
 	
 	public OvalSeekBar(Context context) {
 		super(context);
@@ -78,100 +128,360 @@ public class OvalSeekBar extends SeekBar {
 		progressDrawableSize = typedArray.getInt(R.styleable.OvalSeekBar_progressDrawableSize, 100);
 		
 		min = typedArray.getInt(R.styleable.OvalSeekBar_min, 0);
-
-		typedArray.recycle();
 		
-		TypedArray androidTypedArray = getContext().obtainStyledAttributes(attrs, new int[] { android.R.attr.textSize, android.R.attr.textColor, android.R.attr.max, android.R.attr.progress, android.R.attr.progressDrawable});
-		textSize = androidTypedArray.getDimensionPixelSize(0, 12);
-		textColor = androidTypedArray.getColor(1, Color.BLUE);
-		max = androidTypedArray.getInt(2, 100);
-		progress = androidTypedArray.getInt(3, 0);
-		progressDrawable = androidTypedArray.getDrawable(4);
+		textSize = typedArray.getDimensionPixelSize(R.styleable.OvalSeekBar_android_textSize, 12);
+		textColor = typedArray.getColor(R.styleable.OvalSeekBar_android_textColor, Color.BLUE);
+		max = typedArray.getInt(R.styleable.OvalSeekBar_android_max, 100);
+		int progress = typedArray.getInt(R.styleable.OvalSeekBar_android_progress, 0);
+		progressDrawable = typedArray.getDrawable(R.styleable.OvalSeekBar_android_progressDrawable);
 
-		androidTypedArray.recycle();
+		typedArray.recycle();
 		
 		// reset progress value
 		setProgress(progress);
 		
-		wheelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		wheelPaint.setStyle(Paint.Style.STROKE);
-		wheelPaint.setColor(wheelColor);
-		wheelPaint.setStrokeWidth(wheelSize);
+		wheelPaint = PaintCache.getStrokePaint(wheelColor, wheelSize);
+		pointerPaint = PaintCache.getStrokePaint(pointerColor, wheelSize);
+		textPaint = PaintCache.getCenteredTextPaint(textColor, textSize);
+		valueTextRenderer.setTextPaint(textPaint);
+	}
+	
+	private void countDrawCalls(int count) {
+		if (drawMetrics != null) {
+			drawMetrics.countDrawCalls(count);
+		}
+	}
+	
+	private void drawTextCenter(Canvas canvas, int x, int y, int value) {
+		valueTextRenderer.draw(canvas, x, y, value);
+	}
+	
+	/**
+	 * @param valueFormatter the formatter for the center label, null to draw the integer value
+	 */
+	public void setValueFormatter(ValueFormatter valueFormatter) {
+		valueTextRenderer.setValueFormatter(valueFormatter);
+		
+		invalidate();
+	}
+	
+	// progress drawable animation, advanced by the frame clock
+	private long nextFrameTime;
+	private int currentFrameIndex;
+	private boolean isAnimationRunning;
+	private final FrameClock.FrameCallback animationFrameCallback = new FrameClock.FrameCallback() {
 		
-		pointerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		pointerPaint.setStyle(Paint.Style.STROKE);
-		pointerPaint.setColor(pointerColor);
-		pointerPaint.setStrokeWidth(wheelSize);
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			if (!isAnimationRunning || !(progressDrawable instanceof AnimationDrawable)) {
+				isAnimationRunning = false;
+				return;
+			}
+			AnimationDrawable animationDrawable = (AnimationDrawable) progressDrawable;
+			
+			long now = frameTimeNanos / 1000000L;
+			if (now >= nextFrameTime) {
+				boolean isFinished = false;
+				if (++currentFrameIndex >= animationDrawable.getNumberOfFrames()) {
+					if (!animationDrawable.isOneShot()) {
+						currentFrameIndex = 0;
+					} else {
+						currentFrameIndex = animationDrawable.getNumberOfFrames() - 1;
+						isFinished = true;
+					}
+				}
+				nextFrameTime = now + animationDrawable.getDuration(currentFrameIndex);
+				
+				invalidateProgressDrawable();
+				
+				if (isFinished) {
+					isAnimationRunning = false;
+					return;
+				}
+			}
+			
+			FrameClock.getInstance().postFrameCallback(this);
+		}
+	};
+	
+	/**
+	 * Invalidates only the region of the progress drawable.
+	 */
+	private void invalidateProgressDrawable() {
+		Rect bounds = progressDrawable.getBounds();
+		if (bounds.isEmpty()) {
+			invalidate();
+			return;
+		}
 		
-		textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		textPaint.setTextSize(textSize);
-		textPaint.setTextAlign(Align.CENTER);
-		textPaint.setColor(textColor);
+		// the drawable bounds are relative to the wheel center
+		final int offset = (int) wheelRadius;
+		invalidate(bounds.left + offset - 1, bounds.top + offset - 1, bounds.right + offset + 1, bounds.bottom + offset + 1);
 	}
 	
-	private void drawTextCenter(Canvas canvas, int x, int y, String textToDraw) {
-		Rect bounds = new Rect();
-		textPaint.getTextBounds(textToDraw, 0, textToDraw.length(), bounds);
-		canvas.drawText(textToDraw, x / 2, y / 2 + (bounds.height() * 0.3f), textPaint);
+	private void startAnimation() {
+		if (isAnimationRunning || !(progressDrawable instanceof AnimationDrawable) || ((AnimationDrawable) progressDrawable).getNumberOfFrames() == 0) {
+			return;
+		}
+		
+		isAnimationRunning = true;
+		currentFrameIndex = 0;
+		nextFrameTime = System.nanoTime() / 1000000L + ((AnimationDrawable) progressDrawable).getDuration(0);
+		FrameClock.getInstance().postFrameCallback(animationFrameCallback);
+	}
+	
+	private void stopAnimation() {
+		isAnimationRunning = false;
+		FrameClock.getInstance().removeFrameCallback(animationFrameCallback);
 	}
 	
-	long nextFrameTime;
-	int currentFrameIndex;
+	// precomputed segment geometry, rebuilt only when size or configuration changes
+	private volatile boolean isGeometryDirty = true;
+	private final OvalSegmentTable segmentTable = new OvalSegmentTable();
+	private final OvalHitTester hitTester = new OvalHitTester();
+	
+	// batched rendering for sub-pixel segments
+	private float batchRenderingThreshold = 1f;
+	private boolean isBatchedRendering;
+	
+	// the static wheel segments rendered once, and drawn through the shader of wheelCachePaint
+	private boolean isWheelCacheEnabled = true;
+	private Bitmap wheelBitmap;
+	private Paint wheelCachePaint;
+	
 	/*
 	 * (non-Javadoc)
-	 * @see android.view.View#onDraw(android.graphics.Canvas)
+	 * @see android.view.View#onSizeChanged(int, int, int, int)
 	 */
 	@Override
-	protected synchronized void onDraw(Canvas canvas) {
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		updateGeometry();
+	}
+	
+	/**
+	 * Rebuilds the wheel rectangle and the start angle of each value's segment.
+	 */
+	private void updateGeometry() {
 		wheelRadius = getWidth() * 0.5f;
 		wheelRectangle.set(-wheelRadius + wheelSize / 2, -wheelRadius + wheelSize / 2, wheelRadius - wheelSize / 2, wheelRadius - wheelSize / 2);
 		
-		canvas.translate(wheelRadius, wheelRadius);
+		// on fine progress mode, the segments are the visual ticks instead of each value
+		final int segmentMin = tickCount > 0 ? 0 : min;
+		final int segmentMax = tickCount > 0 ? tickCount - 1 : max;
+		segmentTable.update(segmentMin, segmentMax, wheelZeroAngle, wheelWholeAngle, isWheelDirectionClockwise, wheelValueSeparatorSizeAngle, pointerSizeAngle);
 		
-		for (int i = min; i <= max; i++) {
-			if (isWheelDirectionClockwise) {
-				float minAngle = wheelZeroAngle;
-				double pointerAngle = wheelWholeAngle / (1.0 + max - min);
-				
-				if (pointerType == 0) {
-					// pointer
-					if (i == getProgress()) {
-						canvas.drawArc(wheelRectangle, (float) (minAngle + pointerAngle * (i - min) + pointerAngle / 2 - pointerSizeAngle / 2), pointerSizeAngle, false, pointerPaint);
-					} else {
-						canvas.drawArc(wheelRectangle, (float) (minAngle + pointerAngle * (i - min)), (float) pointerAngle - wheelValueSeparatorSizeAngle, false, wheelPaint);
-					}
-				} else {
-					// value
-					if (i <= getProgress()) {
-						canvas.drawArc(wheelRectangle, (float) (minAngle + pointerAngle * (i - min)), (float) pointerAngle - wheelValueSeparatorSizeAngle, false, pointerPaint);
-					} else {
-						canvas.drawArc(wheelRectangle, (float) (minAngle + pointerAngle * (i - min)), (float) pointerAngle - wheelValueSeparatorSizeAngle, false, wheelPaint);
-					}
-				}
+		// segments narrower than the threshold are drawn as one arc per run
+		final float segmentPixels = (float) (wheelRectangle.width() * 0.5 * Math.toRadians(segmentTable.getSegmentAngle()));
+		isBatchedRendering = segmentPixels < batchRenderingThreshold;
+		
+		hitTester.setGeometry(segmentMin, segmentMax, wheelZeroAngle, wheelWholeAngle, isWheelDirectionClockwise);
+		
+		isGeometryDirty = false;
+		releaseWheelBitmap();
+	}
+	
+	/**
+	 * Draws the wheel segments not covered by the pointer (or the value segments), so a translucent pointer color does not show the wheel through.
+	 * 
+	 * @param canvas translated to the wheel center
+	 * @param progressIndex the segment index of the progress
+	 */
+	private void drawWheel(Canvas canvas, int progressIndex) {
+		final int lastIndex = segmentTable.getSegmentCount() - 1;
+		if (pointerType == 0) {
+			// pointer
+			if (progressIndex >= 0 && progressIndex <= lastIndex) {
+				drawWheelSegments(canvas, 0, progressIndex - 1);
+				drawWheelSegments(canvas, progressIndex + 1, lastIndex);
 			} else {
-				float minAngle = wheelZeroAngle + wheelWholeAngle;
-				double pointerAngle = wheelWholeAngle / (1.0 + max - min);
-				
-				if (pointerType == 0) {
-					// pointer
-					if (i == getProgress()) {
-						canvas.drawArc(wheelRectangle, (float) (minAngle + pointerAngle * (max - i)), (float) pointerAngle - wheelValueSeparatorSizeAngle, false, pointerPaint);
-					} else {
-						canvas.drawArc(wheelRectangle, (float) (minAngle + pointerAngle * (max - i)), (float) pointerAngle - wheelValueSeparatorSizeAngle, false, wheelPaint);
-					}
-				} else {
-					// value
-					if (i <= getProgress()) {
-						canvas.drawArc(wheelRectangle, (float) (minAngle + pointerAngle * (max - i)), (float) pointerAngle - wheelValueSeparatorSizeAngle, false, pointerPaint);
-					} else {
-						canvas.drawArc(wheelRectangle, (float) (minAngle + pointerAngle * (max - i)), (float) pointerAngle - wheelValueSeparatorSizeAngle, false, wheelPaint);
-					}
-				}
+				drawWheelSegments(canvas, 0, lastIndex);
+			}
+		} else {
+			// value
+			drawWheelSegments(canvas, Math.max(progressIndex + 1, 0), lastIndex);
+		}
+	}
+	
+	/**
+	 * Draws the contiguous wheel segments, as one arc from the cache bitmap if available.
+	 * 
+	 * @param canvas translated to the wheel center
+	 * @param fromIndex the first segment index
+	 * @param toIndex the last segment index, inclusive
+	 */
+	private void drawWheelSegments(Canvas canvas, int fromIndex, int toIndex) {
+		if (fromIndex > toIndex) {
+			return;
+		}
+		
+		if (wheelCachePaint != null) {
+			canvas.drawArc(wheelRectangle, segmentTable.getRunStartAngle(fromIndex, toIndex), segmentTable.getRunSweepAngle(fromIndex, toIndex), false, wheelCachePaint);
+			countDrawCalls(1);
+		} else {
+			drawSegments(canvas, fromIndex, toIndex, wheelPaint);
+		}
+	}
+	
+	/**
+	 * Draws the contiguous segments from fromIndex to toIndex.
+	 * On batched rendering, the run is drawn as one arc.
+	 * 
+	 * @param canvas translated to the wheel center
+	 * @param fromIndex the first segment index
+	 * @param toIndex the last segment index, inclusive
+	 * @param paint the paint
+	 */
+	private void drawSegments(Canvas canvas, int fromIndex, int toIndex, Paint paint) {
+		if (fromIndex > toIndex) {
+			return;
+		}
+		
+		if (isBatchedRendering) {
+			canvas.drawArc(wheelRectangle, segmentTable.getRunStartAngle(fromIndex, toIndex), segmentTable.getRunSweepAngle(fromIndex, toIndex), false, paint);
+			countDrawCalls(1);
+		} else {
+			final float[] startAngles = segmentTable.getStartAngles();
+			final float sweepAngle = segmentTable.getSweepAngle();
+			for (int index = fromIndex; index <= toIndex; index++) {
+				canvas.drawArc(wheelRectangle, startAngles[index], sweepAngle, false, paint);
 			}
+			countDrawCalls(toIndex - fromIndex + 1);
 		}
+	}
+	
+	/**
+	 * Draws the pointer (or the value segments) over the wheel.
+	 * 
+	 * @param canvas translated to the wheel center
+	 * @param progressIndex the segment index of the progress
+	 */
+	private void drawPointer(Canvas canvas, int progressIndex) {
+		if (pointerType == 0) {
+			// pointer
+			if (progressIndex >= 0 && progressIndex < segmentTable.getSegmentCount()) {
+				canvas.drawArc(wheelRectangle, segmentTable.getStartAngles()[progressIndex] + segmentTable.getPointerStartAngleOffset(), segmentTable.getPointerSweepAngle(), false, pointerPaint);
+				countDrawCalls(1);
+			}
+		} else {
+			// value
+			drawSegments(canvas, 0, Math.min(progressIndex, segmentTable.getSegmentCount() - 1), pointerPaint);
+		}
+	}
+	
+	/**
+	 * Renders every wheel segment into the cache bitmap, and makes the stroke paint drawing the runs of it.
+	 */
+	private void renderWheelBitmap() {
+		final int size = getWidth();
+		if (size <= 0) {
+			return;
+		}
+		
+		wheelBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+		Canvas wheelCanvas = new Canvas(wheelBitmap);
+		wheelCanvas.translate(wheelRadius, wheelRadius);
+		drawSegments(wheelCanvas, 0, segmentTable.getSegmentCount() - 1, wheelPaint);
+		
+		BitmapShader shader = new BitmapShader(wheelBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+		Matrix shaderMatrix = new Matrix();
+		shaderMatrix.setTranslate(-wheelRadius, -wheelRadius);
+		shader.setLocalMatrix(shaderMatrix);
+		
+		// the colors and the anti-aliased edges come from the bitmap, the stroke is wider to keep the edges
+		wheelCachePaint = new Paint(wheelPaint);
+		wheelCachePaint.setColor(Color.BLACK);
+		wheelCachePaint.setStrokeWidth(wheelPaint.getStrokeWidth() + 2f);
+		wheelCachePaint.setShader(shader);
+	}
+	
+	private void releaseWheelBitmap() {
+		wheelCachePaint = null;
+		if (wheelBitmap != null) {
+			wheelBitmap.recycle();
+			wheelBitmap = null;
+		}
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onDetachedFromWindow()
+	 */
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		ValueAnimationDriver.cancelIfRunning(this);
+		stopAnimation();
+		releaseWheelBitmap();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onAttachedToWindow()
+	 */
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		startAnimation();
+	}
+	
+	/**
+	 * @param batchRenderingThreshold the segment width in pixels below which contiguous segments are drawn as one arc
+	 */
+	public void setBatchRenderingThreshold(float batchRenderingThreshold) {
+		this.batchRenderingThreshold = batchRenderingThreshold;
+		isGeometryDirty = true;
+		
+		invalidate();
+	}
+	
+	/**
+	 * @param isWheelCacheEnabled if true, the wheel segments are rendered once into a bitmap and drawn from it as at most two arcs on each frame
+	 */
+	public void setWheelCacheEnabled(boolean isWheelCacheEnabled) {
+		this.isWheelCacheEnabled = isWheelCacheEnabled;
+		if (!isWheelCacheEnabled) {
+			releaseWheelBitmap();
+		}
+		
+		invalidate();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onDraw(android.graphics.Canvas)
+	 */
+	@Override
+	protected void onDraw(Canvas canvas) {
+		final DrawMetrics metrics = drawMetrics;
+		if (metrics != null) {
+			metrics.beginDraw();
+		}
+		
+		if (isGeometryDirty) {
+			updateGeometry();
+		}
+		
+		canvas.translate(wheelRadius, wheelRadius);
+		
+		if (isWheelCacheEnabled && wheelBitmap == null) {
+			renderWheelBitmap();
+		}
+		
+		final int currentProgress = getProgress();
+		final boolean isFineProgressMode = tickCount > 0;
+		final float currentFineProgress = fineProgress;
+		final int progressIndex = isFineProgressMode ? getTickIndex(currentFineProgress) : currentProgress - min;
+		drawWheel(canvas, progressIndex);
+		drawPointer(canvas, progressIndex);
 	
 		if (progressDrawable != null) {
-			double pointerAngle = -(getProgress() - min + 0.5) * wheelWholeAngle / (1.0 + max - min);
+			double pointerAngle;
+			if (isFineProgressMode) {
+				pointerAngle = max == min ? 0.0 : -(currentFineProgress - min) * wheelWholeAngle / (double) (max - min);
+			} else {
+				pointerAngle = -(currentProgress - min + 0.5) * wheelWholeAngle / (1.0 + max - min);
+			}
 			int x = (int)(-Math.cos(pointerAngle * Math.PI / 180.0) * wheelRectangle.width() / 2);
 			int y;
 			if (isWheelDirectionClockwise) {
@@ -187,106 +497,340 @@ public class OvalSeekBar extends SeekBar {
 			if (progressDrawable instanceof AnimationDrawable) {
 				AnimationDrawable animationDrawable = (AnimationDrawable) progressDrawable;
 				
-				long now = System.currentTimeMillis();
-				if (now > nextFrameTime) {
-					animationDrawable.run();
-							
-					if (++currentFrameIndex >= animationDrawable.getNumberOfFrames()) {
-						if (!animationDrawable.isOneShot()) {
-							currentFrameIndex = 0;
-							nextFrameTime = now + animationDrawable.getDuration(0);
-						} else {
-							currentFrameIndex = animationDrawable.getNumberOfFrames() - 1;
-						}
-					} else {
-						nextFrameTime = now + animationDrawable.getDuration(currentFrameIndex);
-					}
-				}
-				animationDrawable.getFrame(currentFrameIndex).draw(canvas);
-				
+				Drawable frame = animationDrawable.getFrame(currentFrameIndex);
+				frame.setBounds(progressDrawable.getBounds());
+				frame.draw(canvas);
 			} else {
 				progressDrawable.draw(canvas);
 			}
+			countDrawCalls(1);
 		}
 		
-		drawTextCenter(canvas, 0, 0, Integer.toString(getProgress()));
+		drawTextCenter(canvas, 0, 0, currentProgress);
+		countDrawCalls(1);
+		
+		if (metrics != null) {
+			metrics.endDraw(this);
+		}
 	}
 	
-	int previousProgress;
+	private static final AtomicLongFieldUpdater<OvalSeekBar> progressStateUpdater = AtomicLongFieldUpdater.newUpdater(OvalSeekBar.class, "progressState");
 	
+	/*
+	 * (non-Javadoc)
+	 * @see android.widget.ProgressBar#setProgress(int)
+	 */
 	@Override
-	public synchronized void setProgress(int progress) {
-		previousProgress = progress; // NOTE not this.progress
-		this.progress = progress;
+	public void setProgress(int progress) {
+		// may be called from any thread
+		final long previousState = progressStateUpdater.getAndSet(this, ProgressState.pack(progress, progress)); // NOTE previous progress is not the current progress
+		final float previousFineProgress = fineProgress;
+		fineProgress = progress;
 		
-		invalidate();
+		if (ProgressState.progress(previousState) != progress || (tickCount > 0 && previousFineProgress != progress)) {
+			ProgressState.invalidate(this);
+		}
+	}
+	
+	/**
+	 * Moves the progress smoothly to the value, on the UI thread.
+	 * Touching the control stops the animation.
+	 * 
+	 * @param progress the progress
+	 * @param durationMillis the duration
+	 */
+	public void animateProgress(int progress, long durationMillis) {
+		ValueAnimationDriver.getInstance().animateTo(this, 0, progress, durationMillis);
 	}
 	
-	private synchronized void updateProgress(double x, double y) {
-		previousProgress = progress;
-		progress = getClickedProgress(x, y);
+	/**
+	 * Sets the progress on fine progress mode, may be called from any thread.
+	 * {@link #getProgress()} returns the rounded value.
+	 * 
+	 * @param fineProgress the progress, from min to max
+	 */
+	public void setFineProgress(float fineProgress) {
+		if (fineProgress < min) {
+			fineProgress = min;
+		}
+		if (fineProgress > max) {
+			fineProgress = max;
+		}
+		
+		final int tickIndex = getTickIndex(this.fineProgress);
+		this.fineProgress = fineProgress;
+		final int progress = Math.round(fineProgress);
+		final long previousState = progressStateUpdater.getAndSet(this, ProgressState.pack(progress, progress));
+		
+		if (ProgressState.progress(previousState) != progress || getTickIndex(fineProgress) != tickIndex) {
+			ProgressState.invalidate(this);
+		}
 	}
 	
-	private int getClickedProgress(double x, double y) {
-		// unit: 0.0 to 1.0
-		double unit;
+	/**
+	 * @return the progress with sub-step precision on fine progress mode, otherwise the same as {@link #getProgress()}
+	 */
+	public float getFineProgress() {
+		if (tickCount > 0) {
+			return fineProgress;
+		}
+		return getProgress();
+	}
+	
+	/**
+	 * Enables the fine progress mode. The progress becomes continuous between min and max, and the wheel is drawn with the given number of segments.
+	 * The drawing cost is then independent of the range.
+	 * 
+	 * @param tickCount the number of segments drawn, 0 to disable the fine progress mode
+	 */
+	public void setTickCount(int tickCount) {
+		this.tickCount = Math.max(tickCount, 0);
+		isGeometryDirty = true;
 		
-		// angle is radian
-		double angle;
+		ProgressState.invalidate(this);
+	}
+	
+	public int getTickCount() {
+		return tickCount;
+	}
+	
+	/**
+	 * @param onFineProgressChangeListener called when the fine progress is changed by touch
+	 */
+	public void setOnFineProgressChangeListener(OnFineProgressChangeListener onFineProgressChangeListener) {
+		this.onFineProgressChangeListener = onFineProgressChangeListener;
+	}
+	
+	/**
+	 * @param value the fine progress
+	 * @return the index of the tick segment containing the value
+	 */
+	private int getTickIndex(float value) {
+		final int ticks = tickCount;
+		final int range = max - min;
+		if (ticks <= 0 || range <= 0) {
+			return 0;
+		}
 		
-		if (isWheelDirectionClockwise) {
-			angle = Math.atan2(y, x) - Math.PI * wheelZeroAngle / 180d + Math.PI * 5.0 + Math.PI * (360.0 - wheelWholeAngle) / 360.0;
-			while (angle > Math.PI) {
-				angle -= Math.PI * 2.0;
+		int index = (int) ((value - min) / range * ticks);
+		if (index >= ticks) {
+			index = ticks - 1;
+		}
+		if (index < 0) {
+			index = 0;
+		}
+		return index;
+	}
+	
+	/**
+	 * @param x the x position, relative to the wheel center
+	 * @param y the y position, relative to the wheel center
+	 * @return true if the drawn state has changed
+	 */
+	private boolean updateProgress(double x, double y) {
+		if (tickCount > 0) {
+			return updateFineProgress(x, y);
+		}
+		
+		final int clickedProgress = getClickedProgress(x, y);
+		long state;
+		do {
+			state = progressState;
+		} while (!progressStateUpdater.compareAndSet(this, state, ProgressState.pack(clickedProgress, ProgressState.progress(state))));
+		
+		return clickedProgress != ProgressState.progress(state);
+	}
+	
+	/**
+	 * @param x the x position, relative to the wheel center
+	 * @param y the y position, relative to the wheel center
+	 * @return true if the drawn state has changed
+	 */
+	private boolean updateFineProgress(double x, double y) {
+		if (isGeometryDirty) {
+			updateGeometry();
+		}
+		
+		final float previousFineProgress = fineProgress;
+		final float clickedFineProgress = (float) (min + hitTester.getUnit(x, y) * (max - min));
+		final int previousProgress = getProgress();
+		setFineProgress(clickedFineProgress);
+		
+		if (clickedFineProgress != previousFineProgress && onFineProgressChangeListener != null) {
+			onFineProgressChangeListener.onFineProgressChanged(this, clickedFineProgress, true);
+		}
+		
+		return previousProgress != getProgress() || getTickIndex(previousFineProgress) != getTickIndex(clickedFineProgress);
+	}
+	
+	/**
+	 * Moves the progress by the angle of each sample in the event multiplied by the gain for the pointer speed.
+	 * 
+	 * @param event the move event
+	 * @return true if the drawn state has changed
+	 */
+	private boolean updateAcceleratedProgress(MotionEvent event) {
+		if (isGeometryDirty) {
+			updateGeometry();
+		}
+		
+		if (onProgressBatchListener != null) {
+			touchSamples.clear();
+		}
+		
+		final float density = getResources().getDisplayMetrics().density;
+		final int historySize = event.getHistorySize();
+		for (int h = 0; h <= historySize; h++) {
+			final float x = h < historySize ? event.getHistoricalX(h) : event.getX();
+			final float y = h < historySize ? event.getHistoricalY(h) : event.getY();
+			final long eventTime = h < historySize ? event.getHistoricalEventTime(h) : event.getEventTime();
+			
+			final double unit = hitTester.getUnit(x - wheelRadius, y - wheelRadius);
+			double unitDelta = unit - lastTouchUnit;
+			if (Math.abs(unitDelta) > 0.5) {
+				// crossed the gap between the wheel ends
+				unitDelta = 0.0;
 			}
-			unit = angle * 360.0 / wheelWholeAngle / (2.0 * Math.PI) + 0.5;
-		} else {
-			angle = Math.atan2(y, x) - Math.PI * wheelZeroAngle / 180d + Math.PI * 5.0 - Math.PI * (360.0 - wheelWholeAngle) / 360.0;
-			while (angle > Math.PI) {
-				angle -= Math.PI * 2.0;
+			
+			final float distance = (float) Math.sqrt((x - lastTouchX) * (x - lastTouchX) + (y - lastTouchY) * (y - lastTouchY)) / density;
+			acceleratedProgress += unitDelta * (max - min) * accelerationCurve.getGain(distance, eventTime - lastTouchTime);
+			if (acceleratedProgress < min) {
+				acceleratedProgress = min;
+			}
+			if (acceleratedProgress > max) {
+				acceleratedProgress = max;
+			}
+			
+			lastTouchUnit = unit;
+			lastTouchX = x;
+			lastTouchY = y;
+			lastTouchTime = eventTime;
+			
+			if (onProgressBatchListener != null) {
+				touchSamples.add(eventTime, (int) Math.round(acceleratedProgress));
 			}
-			unit = 0.5 - angle * 360.0 / wheelWholeAngle / (2.0 * Math.PI);
 		}
 		
-		int result = (int) Math.floor((1.0 + max - min) * unit + min);
-		if (result > max) {
-			result = max;
+		if (tickCount > 0) {
+			final float previousFineProgress = fineProgress;
+			final int previousProgress = getProgress();
+			setFineProgress((float) acceleratedProgress);
+			
+			if (fineProgress != previousFineProgress && onFineProgressChangeListener != null) {
+				onFineProgressChangeListener.onFineProgressChanged(this, fineProgress, true);
+			}
+			return previousProgress != getProgress() || getTickIndex(previousFineProgress) != getTickIndex(fineProgress);
+		}
+		
+		final int progress = (int) Math.round(acceleratedProgress);
+		long state;
+		do {
+			state = progressState;
+		} while (!progressStateUpdater.compareAndSet(this, state, ProgressState.pack(progress, ProgressState.progress(state))));
+		
+		return progress != ProgressState.progress(state);
+	}
+	
+	/**
+	 * Enables the relative dragging. The progress moves by the dragged angle multiplied by the gain for the pointer speed,
+	 * instead of following the pointer.
+	 * 
+	 * @param accelerationCurve the curve, may be shared with other views. null to follow the pointer
+	 */
+	public void setAccelerationCurve(AccelerationCurve accelerationCurve) {
+		this.accelerationCurve = accelerationCurve;
+	}
+	
+	private int getClickedProgress(double x, double y) {
+		if (isGeometryDirty) {
+			updateGeometry();
 		}
-		if (result < min) {
-			result = min;
+		
+		return hitTester.getProgress(x, y);
+	}
+	
+	/**
+	 * @param x the x position, relative to the wheel center
+	 * @param y the y position, relative to the wheel center
+	 * @return the progress at the position, rounded from the fine progress on fine progress mode
+	 */
+	private int getSampleProgress(double x, double y) {
+		if (tickCount <= 0) {
+			return getClickedProgress(x, y);
 		}
 		
-		return result;
+		if (isGeometryDirty) {
+			updateGeometry();
+		}
+		return (int) Math.round(min + hitTester.getUnit(x, y) * (max - min));
 	}
 	
 	@Override
-	public synchronized int getProgress() {
-		return progress;
+	public int getProgress() {
+		return ProgressState.progress(progressState);
 	}
 	
 	@Override
-	public synchronized int getMax() {
+	public int getMax() {
 		return max;
 	}
 	
-	public synchronized int getMin() {
+	public int getMin() {
 		return min;
 	}
 	
+	@Override
+	public void setMax(int max) {
+		this.max = max;
+		isGeometryDirty = true;
+		
+		ProgressState.invalidate(this);
+	}
+	
+	public void setMin(int min) {
+		this.min = min;
+		isGeometryDirty = true;
+		
+		ProgressState.invalidate(this);
+	}
+	
 	@Override
 	public boolean onTouchEvent(MotionEvent event) {
+		DrawMetrics.recordTouch(drawMetrics, event.getEventTime());
+		
 		float x = event.getX();
 		float y = event.getY();
 		
 		switch (event.getAction()) {
 			case MotionEvent.ACTION_DOWN:
+				ValueAnimationDriver.cancelIfRunning(this);
+				if (accelerationCurve != null) {
+					// the pointer stays where it is until the wheel is dragged
+					if (isGeometryDirty) {
+						updateGeometry();
+					}
+					onPointer = true;
+					acceleratedProgress = getFineProgress();
+					lastTouchUnit = hitTester.getUnit(x - wheelRadius, y - wheelRadius);
+					lastTouchX = x;
+					lastTouchY = y;
+					lastTouchTime = event.getEventTime();
+					
+					if (onSeekBarChangeListener != null) {
+						onSeekBarChangeListener.onStartTrackingTouch(this);
+					}
+					break;
+				}
+				
+				// on fine progress mode, the clicked value is the tick index
 				int clickedProgress = getClickedProgress(x - wheelRadius, y - wheelRadius);
+				int pointerProgress = tickCount > 0 ? getTickIndex(fineProgress) : getProgress();
 				
-				if (isClickableWheel || pointerType == 1 || clickedProgress == getProgress()) {
+				if (isClickableWheel || pointerType == 1 || clickedProgress == pointerProgress) {
 					onPointer = true;
-					updateProgress(x - wheelRadius, y - wheelRadius);
-					
-					invalidate();
+					if (updateProgress(x - wheelRadius, y - wheelRadius)) {
+						invalidate();
+					}
 					
 					if (onSeekBarChangeListener != null) {
 						onSeekBarChangeListener.onStartTrackingTouch(this);
@@ -295,17 +839,24 @@ public class OvalSeekBar extends SeekBar {
 				break;
 			case MotionEvent.ACTION_MOVE:
 				if (onPointer) {
-					updateProgress(x - wheelRadius, y - wheelRadius);
+					final int previousProgress = getProgress();
+					final boolean isChanged = accelerationCurve != null ? updateAcceleratedProgress(event) : updateProgress(x - wheelRadius, y - wheelRadius);
+					if (isChanged) {
+						invalidate();
+					}
 					
-					invalidate();
+					if (getProgress() != previousProgress && onSeekBarChangeListener != null) {
+						listenerThrottle.request();
+					}
 					
-					if (onSeekBarChangeListener != null) {
-						onSeekBarChangeListener.onProgressChanged(this, getProgress(), true);
+					if (onProgressBatchListener != null) {
+						dispatchTouchSamples(event);
 					}
 				}
 				break;
 			case MotionEvent.ACTION_UP:
 				onPointer = false;
+				listenerThrottle.cancel();
 				
 				if (onSeekBarChangeListener != null) {
 					onSeekBarChangeListener.onProgressChanged(this, getProgress(), true);
@@ -316,48 +867,98 @@ public class OvalSeekBar extends SeekBar {
 		return true;
 	}
 	
+	/**
+	 * Delivers the progress of every sample in the event, including the historical samples, in one batch.
+	 * 
+	 * @param event the move event
+	 */
+	private void dispatchTouchSamples(MotionEvent event) {
+		// the relative dragging has already recorded the samples
+		if (accelerationCurve == null) {
+			touchSamples.clear();
+			final int historySize = event.getHistorySize();
+			for (int h = 0; h < historySize; h++) {
+				touchSamples.add(event.getHistoricalEventTime(h), getSampleProgress(event.getHistoricalX(h) - wheelRadius, event.getHistoricalY(h) - wheelRadius));
+			}
+			touchSamples.add(event.getEventTime(), getProgress());
+		}
+		
+		onProgressBatchListener.onProgressBatch(this, touchSamples.values, touchSamples.eventTimes, touchSamples.sampleCount, 1, true);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onSaveInstanceState()
+	 */
 	@Override
 	public Parcelable onSaveInstanceState() {
-		Parcelable superState = super.onSaveInstanceState();
-		SavedState savedState = new SavedState(superState);
-		savedState.isClickableWheel = isClickableWheel;
-		savedState.isWheelDirectionClockwise = isWheelDirectionClockwise;
-		savedState.max = max;
-		savedState.min = min;
-		savedState.pointerColor = pointerColor;
-		savedState.pointerSizeAngle = pointerSizeAngle;
-		savedState.pointerType = pointerType;
-		savedState.progress = progress;
-		savedState.textColor = textColor;
-		savedState.textSize = textSize;
-		savedState.wheelColor = wheelColor;
-		savedState.wheelSize = wheelSize;
-		savedState.wheelWholeAngle = wheelWholeAngle;
-		savedState.wheelZeroAngle = wheelZeroAngle;
-		return savedState;
+		return CompactSavedState.save(super.onSaveInstanceState(), this);
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onRestoreInstanceState(android.os.Parcelable)
+	 */
 	@Override
 	public void onRestoreInstanceState(Parcelable state) {
-		if (state != null && state instanceof SavedState) {
-			SavedState savedState = (SavedState) state;
-			super.onRestoreInstanceState(savedState.getSuperState());
-			
-			isClickableWheel = savedState.isClickableWheel;
-			isWheelDirectionClockwise = savedState.isWheelDirectionClockwise;
-			max = savedState.max;
-			min = savedState.min;
-			pointerColor = savedState.pointerColor;
-			pointerSizeAngle = savedState.pointerSizeAngle;
-			pointerType = savedState.pointerType;
-			progress = savedState.progress;
-			textColor = savedState.textColor;
-			textSize = savedState.textSize;
-			wheelColor = savedState.wheelColor;
-			wheelSize = savedState.wheelSize;
-			wheelWholeAngle = savedState.wheelWholeAngle;
-			wheelZeroAngle = savedState.wheelZeroAngle;
-		}
+		super.onRestoreInstanceState(CompactSavedState.getSuperState(state));
+		CompactSavedState.restore(state, this);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.CompactStateControl#writeState(jp.kshoji.android.engine.CompactStateWriter)
+	 */
+	@Override
+	public void writeState(CompactStateWriter writer) {
+		writer.beginRecord(STATE_VERSION);
+		writer.writeInt(wheelSize, 16);
+		writer.writeInt(wheelColor, Color.BLACK);
+		writer.writeInt(pointerSizeAngle, 48);
+		writer.writeInt(pointerColor, Color.CYAN);
+		writer.writeInt(pointerType, 0);
+		writer.writeBoolean(isClickableWheel, false);
+		writer.writeBoolean(isWheelDirectionClockwise, true);
+		writer.writeInt(textSize, 12);
+		writer.writeInt(textColor, Color.BLUE);
+		writer.writeInt(min, 0);
+		writer.writeInt(max, 100);
+		writer.writeInt(getProgress(), min);
+		writer.writeInt(wheelZeroAngle, 0);
+		writer.writeInt(wheelWholeAngle, 270);
+		writer.writeInt(tickCount, 0);
+		writer.writeFloat(fineProgress, getProgress());
+		writer.endRecord();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.CompactStateControl#readState(jp.kshoji.android.engine.CompactStateReader)
+	 */
+	@Override
+	public void readState(CompactStateReader reader) {
+		reader.beginRecord();
+		wheelSize = reader.readInt(16);
+		wheelColor = reader.readInt(Color.BLACK);
+		pointerSizeAngle = reader.readInt(48);
+		pointerColor = reader.readInt(Color.CYAN);
+		pointerType = reader.readInt(0);
+		isClickableWheel = reader.readBoolean(false);
+		isWheelDirectionClockwise = reader.readBoolean(true);
+		textSize = reader.readInt(12);
+		textColor = reader.readInt(Color.BLUE);
+		min = reader.readInt(0);
+		max = reader.readInt(100);
+		final int progress = reader.readInt(min);
+		progressState = ProgressState.pack(progress, progress);
+		wheelZeroAngle = reader.readInt(0);
+		wheelWholeAngle = reader.readInt(270);
+		tickCount = reader.readInt(0);
+		fineProgress = reader.readFloat(progress);
+		reader.endRecord();
+		
+		isGeometryDirty = true;
+		invalidate();
 	}
 	
 	/**
@@ -368,74 +969,103 @@ public class OvalSeekBar extends SeekBar {
 		this.onSeekBarChangeListener = onSeekBarChangeListener;
 	}
 	
-	protected static class SavedState extends BaseSavedState {
-		int wheelSize;
-		int wheelColor;
-		int pointerSizeAngle;
-		int pointerColor;
-		int pointerType;
-		boolean isClickableWheel;
-		boolean isWheelDirectionClockwise;
-		int textSize;
-		int textColor;
-		int progress;
-		int min;
-		int max;
-		int wheelZeroAngle;
-		int wheelWholeAngle;
-		
-		SavedState(Parcelable superState) {
-			super(superState);
-		}
-		
-		SavedState(Parcel in) {
-			super(in);
-			wheelSize = in.readInt();
-			wheelColor = in.readInt();
-			pointerSizeAngle = in.readInt();
-			pointerColor = in.readInt();
-			pointerType = in.readInt();
-			isClickableWheel = in.readInt() == 1;
-			isWheelDirectionClockwise = in.readInt() == 1;
-			textSize = in.readInt();
-			textColor = in.readInt();
-			progress = in.readInt();
-			min = in.readInt();
-			max = in.readInt();
-			wheelZeroAngle = in.readInt();
-			wheelWholeAngle = in.readInt();
-		}
-		
-		@Override
-		public void writeToParcel(Parcel destination, int flags) {
-			super.writeToParcel(destination, flags);
-			destination.writeInt(wheelSize);
-			destination.writeInt(wheelColor);
-			destination.writeInt(pointerSizeAngle);
-			destination.writeInt(pointerColor);
-			destination.writeInt(pointerType);
-			destination.writeInt(isClickableWheel ? 1 : 0);
-			destination.writeInt(isWheelDirectionClockwise ? 1 : 0);
-			destination.writeInt(textSize);
-			destination.writeInt(textColor);
-			destination.writeInt(progress);
-			destination.writeInt(min);
-			destination.writeInt(max);
-			destination.writeInt(wheelZeroAngle);
-			destination.writeInt(wheelWholeAngle);
-		}
-		
-		public static final Parcelable.Creator<SavedState> CREATOR = new Creator<SavedState>() {
-			
-			@Override
-			public SavedState createFromParcel(Parcel in) {
-				return new SavedState(in);
-			}
-			
-			@Override
-			public SavedState[] newArray(int size) {
-				return new SavedState[size];
-			}
-		};
+	/**
+	 * Limits the onProgressChanged calls while tracking a touch. Intermediate changes are merged, and the latest progress is delivered.
+	 * 
+	 * @param minIntervalMillis the minimum interval between two calls, 0 to call on every change
+	 */
+	public void setListenerRateLimit(long minIntervalMillis) {
+		listenerThrottle.setMinInterval(minIntervalMillis);
+	}
+	
+	/**
+	 * Delays the onProgressChanged calls while tracking a touch, until the progress stays unchanged for the time.
+	 * 
+	 * @param debounceMillis the quiet time, 0 to disable
+	 */
+	public void setListenerDebounce(long debounceMillis) {
+		listenerThrottle.setDebounce(debounceMillis);
+	}
+	
+	/**
+	 * @param drawMetrics records the drawing cost of this view, null to disable recording
+	 */
+	public void setDrawMetrics(DrawMetrics drawMetrics) {
+		this.drawMetrics = drawMetrics;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#invalidate()
+	 */
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		DrawMetrics.recordInvalidate(drawMetrics);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#invalidate(int, int, int, int)
+	 */
+	@Override
+	public void invalidate(int l, int t, int r, int b) {
+		super.invalidate(l, t, r, b);
+		DrawMetrics.recordInvalidate(drawMetrics);
+	}
+	
+	/**
+	 * Posts the progress from any thread.
+	 * The updates are coalesced, and the view is redrawn at most once per frame with the latest progress.
+	 * With an {@link OnProgressBatchListener}, up to 64 values are kept per frame. Further values replace the latest one, and are counted in {@link #getDroppedProgressCount()}.
+	 * 
+	 * @param progress the progress
+	 */
+	public void postProgress(int progress) {
+		progressFeed.post(progress);
+	}
+	
+	/**
+	 * @return the number of posted progress values not delivered to the {@link OnProgressBatchListener} because more than 64 were posted in a frame
+	 */
+	public long getDroppedProgressCount() {
+		return progressFeed.getDroppedSampleCount();
+	}
+	
+	/**
+	 * @param onProgressBatchListener receives every posted progress in one batch per frame, and every touch sample in one batch per move event.
+	 * null to deliver only the latest progress
+	 */
+	public void setOnProgressBatchListener(OnProgressBatchListener onProgressBatchListener) {
+		this.onProgressBatchListener = onProgressBatchListener;
+		progressFeed.setHistoryEnabled(onProgressBatchListener != null);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.SceneControl#getSceneValueCount()
+	 */
+	@Override
+	public int getSceneValueCount() {
+		return 1;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.SceneControl#captureSceneValues(int[], int)
+	 */
+	@Override
+	public void captureSceneValues(int[] snapshot, int offset) {
+		snapshot[offset] = getProgress();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.SceneControl#applySceneValues(int[], int)
+	 */
+	@Override
+	public void applySceneValues(int[] snapshot, int offset) {
+		// redraws only if changed
+		setProgress(snapshot[offset]);
 	}
 }
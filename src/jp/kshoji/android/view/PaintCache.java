@@ -0,0 +1,106 @@
+package jp.kshoji.android.view;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.graphics.Paint;
+import android.graphics.Paint.Align;
+
+/**
+ * Shares the Paints between views, keyed by the resolved attribute values.
+ * Views with the same style get the same instances, so a layout with many controls allocates each Paint only once.
+ * 
+ * Each kind keeps the {@value #MAX_PAINT_COUNT} most recently used styles, so views created with changing styles do not grow the cache.
+ * The returned Paints are shared, never modify them. Create a new Paint instead.
+ */
+final class PaintCache {
+	static final int MAX_PAINT_COUNT = 32;
+	
+	private static final PaintMap strokePaints = new PaintMap();
+	private static final PaintMap fillPaints = new PaintMap();
+	private static final PaintMap textPaints = new PaintMap();
+	
+	/**
+	 * Evicts the least recently used Paint, the views holding it keep their instance.
+	 */
+	private static final class PaintMap extends LinkedHashMap<Long, Paint> {
+		private static final long serialVersionUID = 1L;
+		
+		PaintMap() {
+			super(16, 0.75f, true);
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Paint> eldest) {
+			return size() > MAX_PAINT_COUNT;
+		}
+	}
+	
+	private PaintCache() {
+	}
+	
+	/**
+	 * @param color the color
+	 * @param value the float attribute
+	 * @return the key
+	 */
+	private static long key(int color, float value) {
+		return ((long) color << 32) | (Float.floatToIntBits(value) & 0xffffffffL);
+	}
+	
+	/**
+	 * @param color the color
+	 * @param strokeWidth the stroke width, in pixel
+	 * @return the anti-aliased stroke paint
+	 */
+	static synchronized Paint getStrokePaint(int color, float strokeWidth) {
+		final Long key = Long.valueOf(key(color, strokeWidth));
+		Paint paint = strokePaints.get(key);
+		if (paint == null) {
+			paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+			paint.setStyle(Paint.Style.STROKE);
+			paint.setColor(color);
+			paint.setStrokeWidth(strokeWidth);
+			strokePaints.put(key, paint);
+		}
+		return paint;
+	}
+	
+	/**
+	 * @param color the color
+	 * @return the anti-aliased fill paint
+	 */
+	static synchronized Paint getFillPaint(int color) {
+		final Long key = Long.valueOf(key(color, 0f));
+		Paint paint = fillPaints.get(key);
+		if (paint == null) {
+			paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+			paint.setStyle(Paint.Style.FILL);
+			paint.setColor(color);
+			fillPaints.put(key, paint);
+		}
+		return paint;
+	}
+	
+	/**
+	 * @param color the color
+	 * @param textSize the text size, in pixel
+	 * @return the anti-aliased, center aligned text paint
+	 */
+	static synchronized Paint getCenteredTextPaint(int color, float textSize) {
+		final Long key = Long.valueOf(key(color, textSize));
+		Paint paint = textPaints.get(key);
+		if (paint == null) {
+			paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+			paint.setTextSize(textSize);
+			paint.setTextAlign(Align.CENTER);
+			paint.setColor(color);
+			textPaints.put(key, paint);
+		}
+		return paint;
+	}
+}
@@ -0,0 +1,39 @@
+package jp.kshoji.android.view;
+
+import android.os.Looper;
+import android.view.View;
+
+/**
+ * Packs the progress and the previous progress into one long value, so that both can be published atomically
+ * with a volatile write or a compare-and-set, without locking.
+ */
+final class ProgressState {
+	
+	private ProgressState() {
+	}
+	
+	static long pack(int progress, int previousProgress) {
+		return ((long) progress << 32) | (previousProgress & 0xffffffffL);
+	}
+	
+	static int progress(long state) {
+		return (int) (state >> 32);
+	}
+	
+	static int previousProgress(long state) {
+		return (int) state;
+	}
+	
+	/**
+	 * Invalidates the view, from the UI thread or any other thread.
+	 * 
+	 * @param view the view
+	 */
+	static void invalidate(View view) {
+		if (Looper.myLooper() == Looper.getMainLooper()) {
+			view.invalidate();
+		} else {
+			view.postInvalidate();
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package jp.kshoji.android.view;
+
+/**
+ * A view whose values are captured into and applied from the int array snapshots of {@link ControlScene}.
+ */
+public interface SceneControl {
+	
+	/**
+	 * @return the number of int values in the snapshot. A change of the count invalidates the snapshots taken before
+	 */
+	int getSceneValueCount();
+	
+	/**
+	 * @param snapshot the destination
+	 * @param offset the index of the first value
+	 */
+	void captureSceneValues(int[] snapshot, int offset);
+	
+	/**
+	 * Applies the values, and redraws only if they have changed. Must be called on the UI thread.
+	 * 
+	 * @param snapshot the source
+	 * @param offset the index of the first value
+	 */
+	void applySceneValues(int[] snapshot, int offset);
+}
@@ -0,0 +1,51 @@
+package jp.kshoji.android.view;
+
+/**
+ * Collects the values computed from the samples of one {@link android.view.MotionEvent}, including its historical samples.
+ * The arrays are reused between events, and grow only when an event has more samples than before.
+ */
+final class TouchSampleBuffer {
+	private final int valuesPerSample;
+	int[] values;
+	long[] eventTimes;
+	int sampleCount;
+	
+	TouchSampleBuffer(int valuesPerSample) {
+		this.valuesPerSample = valuesPerSample;
+		values = new int[8 * valuesPerSample];
+		eventTimes = new long[8];
+	}
+	
+	void clear() {
+		sampleCount = 0;
+	}
+	
+	void add(long eventTime, int value) {
+		ensureCapacity(sampleCount + 1);
+		values[sampleCount * valuesPerSample] = value;
+		eventTimes[sampleCount] = eventTime;
+		sampleCount++;
+	}
+	
+	void add(long eventTime, int value0, int value1) {
+		ensureCapacity(sampleCount + 1);
+		values[sampleCount * valuesPerSample] = value0;
+		values[sampleCount * valuesPerSample + 1] = value1;
+		eventTimes[sampleCount] = eventTime;
+		sampleCount++;
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if (eventTimes.length >= capacity) {
+			return;
+		}
+		
+		int newCapacity = Math.max(capacity, eventTimes.length * 2);
+		int[] newValues = new int[newCapacity * valuesPerSample];
+		System.arraycopy(values, 0, newValues, 0, sampleCount * valuesPerSample);
+		values = newValues;
+		long[] newEventTimes = new long[newCapacity];
+		System.arraycopy(eventTimes, 0, newEventTimes, 0, sampleCount);
+		eventTimes = newEventTimes;
+	}
+}
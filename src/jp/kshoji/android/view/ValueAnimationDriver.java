@@ -0,0 +1,326 @@
+package jp.kshoji.android.view;
+
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+
+/**
+ * Animates the values of any number of {@link SceneControl}s from one frame callback.
+ * Every animated value is a channel in primitive arrays, and each frame interpolates all channels in one pass.
+ * Only the controls whose values have changed in the frame are applied, so only they are redrawn.
+ * The views of this package cancel their animations when touched or detached, so the driver does not keep a destroyed view alive.
+ * 
+ * All methods must be called on the UI thread.
+ */
+public final class ValueAnimationDriver {
+	private static ValueAnimationDriver instance;
+	
+	// channels, the channels of the same control are contiguous
+	private SceneControl[] controls = new SceneControl[16];
+	private int[] slots = new int[16];
+	private int[] fromValues = new int[16];
+	private int[] toValues = new int[16];
+	private int[] currentValues = new int[16];
+	private long[] startTimes = new long[16];
+	private long[] durations = new long[16];
+	private int channelCount;
+	
+	private int[] valueBuffer = new int[16];
+	private Interpolator interpolator = new DecelerateInterpolator();
+	private boolean isFrameScheduled;
+	private final FrameClock.FrameCallback frameCallback = new FrameClock.FrameCallback() {
+		
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			animateFrame(frameTimeNanos);
+		}
+	};
+	
+	private ValueAnimationDriver() {
+	}
+	
+	/**
+	 * @return the driver shared by every control
+	 */
+	public static ValueAnimationDriver getInstance() {
+		if (instance == null) {
+			instance = new ValueAnimationDriver();
+		}
+		return instance;
+	}
+	
+	/**
+	 * Stops the animations of the control, if the driver has been created.
+	 * 
+	 * @param control the control
+	 */
+	static void cancelIfRunning(SceneControl control) {
+		if (instance != null) {
+			instance.cancel(control);
+		}
+	}
+	
+	/**
+	 * Stops the animation of a value of the control, if the driver has been created.
+	 * 
+	 * @param control the control
+	 * @param slot the index of the value
+	 */
+	static void cancelIfRunning(SceneControl control, int slot) {
+		if (instance != null) {
+			instance.cancel(control, slot);
+		}
+	}
+	
+	/**
+	 * @param interpolator the easing of every animation, applied from the next frame
+	 */
+	public void setInterpolator(Interpolator interpolator) {
+		this.interpolator = interpolator;
+	}
+	
+	/**
+	 * Animates a value of the control from its current value.
+	 * 
+	 * @param control the control
+	 * @param slot the index of the value, as in {@link SceneControl#captureSceneValues(int[], int)}
+	 * @param value the target value
+	 * @param durationMillis the duration
+	 */
+	public void animateTo(SceneControl control, int slot, int value, long durationMillis) {
+		final int valueCount = control.getSceneValueCount();
+		final int[] currentControlValues = captureValues(control, valueCount);
+		
+		startChannel(control, slot, currentControlValues[slot], value, System.nanoTime(), durationMillis * 1000000L);
+		scheduleFrame();
+	}
+	
+	/**
+	 * Animates every value of the control from its current value.
+	 * 
+	 * @param control the control
+	 * @param snapshot the target values
+	 * @param offset the index of the first target value in the snapshot
+	 * @param durationMillis the duration
+	 */
+	public void animateTo(SceneControl control, int[] snapshot, int offset, long durationMillis) {
+		final int valueCount = control.getSceneValueCount();
+		final int[] currentControlValues = captureValues(control, valueCount);
+		final long now = System.nanoTime();
+		
+		for (int slot = 0; slot < valueCount; slot++) {
+			startChannel(control, slot, currentControlValues[slot], snapshot[offset + slot], now, durationMillis * 1000000L);
+		}
+		scheduleFrame();
+	}
+	
+	/**
+	 * Stops the animations of the control at their current values.
+	 * 
+	 * @param control the control
+	 */
+	public void cancel(SceneControl control) {
+		int count = 0;
+		for (int i = 0; i < channelCount; i++) {
+			if (controls[i] != control) {
+				moveChannel(i, count++);
+			}
+		}
+		clearChannels(count);
+	}
+	
+	/**
+	 * Stops the animation of a value of the control at its current value.
+	 * 
+	 * @param control the control
+	 * @param slot the index of the value
+	 */
+	public void cancel(SceneControl control, int slot) {
+		int count = 0;
+		for (int i = 0; i < channelCount; i++) {
+			if (controls[i] != control || slots[i] != slot) {
+				moveChannel(i, count++);
+			}
+		}
+		clearChannels(count);
+	}
+	
+	/**
+	 * @param control the control
+	 * @return true if any value of the control is animating
+	 */
+	public boolean isRunning(SceneControl control) {
+		for (int i = 0; i < channelCount; i++) {
+			if (controls[i] == control) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @param control the control
+	 * @param valueCount the number of values
+	 * @return the values of the control in the shared buffer
+	 */
+	private int[] captureValues(SceneControl control, int valueCount) {
+		if (valueBuffer.length < valueCount) {
+			valueBuffer = new int[valueCount];
+		}
+		control.captureSceneValues(valueBuffer, 0);
+		return valueBuffer;
+	}
+	
+	/**
+	 * Restarts the channel of the slot, or inserts it after the other channels of the control.
+	 */
+	private void startChannel(SceneControl control, int slot, int from, int to, long startTime, long duration) {
+		int index = -1;
+		int insertIndex = channelCount;
+		for (int i = 0; i < channelCount; i++) {
+			if (controls[i] == control) {
+				if (slots[i] == slot) {
+					index = i;
+					break;
+				}
+				insertIndex = i + 1;
+			}
+		}
+		
+		if (index < 0) {
+			if (from == to) {
+				return;
+			}
+			
+			ensureCapacity(channelCount + 1);
+			for (int i = channelCount; i > insertIndex; i--) {
+				moveChannel(i - 1, i);
+			}
+			channelCount++;
+			index = insertIndex;
+		}
+		
+		controls[index] = control;
+		slots[index] = slot;
+		fromValues[index] = from;
+		toValues[index] = to;
+		currentValues[index] = from;
+		startTimes[index] = startTime;
+		durations[index] = Math.max(duration, 1L);
+	}
+	
+	private void moveChannel(int from, int to) {
+		if (from == to) {
+			return;
+		}
+		controls[to] = controls[from];
+		slots[to] = slots[from];
+		fromValues[to] = fromValues[from];
+		toValues[to] = toValues[from];
+		currentValues[to] = currentValues[from];
+		startTimes[to] = startTimes[from];
+		durations[to] = durations[from];
+	}
+	
+	/**
+	 * @param count the number of remaining channels
+	 */
+	private void clearChannels(int count) {
+		for (int i = count; i < channelCount; i++) {
+			controls[i] = null;
+		}
+		channelCount = count;
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if (controls.length >= capacity) {
+			return;
+		}
+		final int newCapacity = Math.max(capacity, controls.length * 2);
+		
+		SceneControl[] newControls = new SceneControl[newCapacity];
+		System.arraycopy(controls, 0, newControls, 0, channelCount);
+		controls = newControls;
+		slots = copyOf(slots, newCapacity);
+		fromValues = copyOf(fromValues, newCapacity);
+		toValues = copyOf(toValues, newCapacity);
+		currentValues = copyOf(currentValues, newCapacity);
+		
+		long[] newStartTimes = new long[newCapacity];
+		System.arraycopy(startTimes, 0, newStartTimes, 0, channelCount);
+		startTimes = newStartTimes;
+		long[] newDurations = new long[newCapacity];
+		System.arraycopy(durations, 0, newDurations, 0, channelCount);
+		durations = newDurations;
+	}
+	
+	private int[] copyOf(int[] array, int length) {
+		int[] result = new int[length];
+		System.arraycopy(array, 0, result, 0, channelCount);
+		return result;
+	}
+	
+	private void scheduleFrame() {
+		if (!isFrameScheduled && channelCount > 0) {
+			isFrameScheduled = true;
+			FrameClock.getInstance().postFrameCallback(frameCallback);
+		}
+	}
+	
+	/**
+	 * Interpolates every channel, and applies the changed values.
+	 * 
+	 * @param frameTimeNanos the frame time
+	 */
+	private void animateFrame(long frameTimeNanos) {
+		isFrameScheduled = false;
+		
+		int remainingCount = 0;
+		int groupStart = 0;
+		while (groupStart < channelCount) {
+			final SceneControl control = controls[groupStart];
+			int groupEnd = groupStart;
+			boolean isChanged = false;
+			
+			// interpolate every channel of the control
+			while (groupEnd < channelCount && controls[groupEnd] == control) {
+				float t = (float) (frameTimeNanos - startTimes[groupEnd]) / durations[groupEnd];
+				if (t < 0f) {
+					t = 0f;
+				}
+				if (t > 1f) {
+					t = 1f;
+				}
+				
+				final int value = t >= 1f ? toValues[groupEnd] : fromValues[groupEnd] + Math.round((toValues[groupEnd] - fromValues[groupEnd]) * interpolator.getInterpolation(t));
+				if (value != currentValues[groupEnd]) {
+					currentValues[groupEnd] = value;
+					isChanged = true;
+				}
+				groupEnd++;
+			}
+			
+			if (isChanged) {
+				final int valueCount = control.getSceneValueCount();
+				final int[] values = captureValues(control, valueCount);
+				for (int i = groupStart; i < groupEnd; i++) {
+					// the control may have fewer values than when the animation started
+					if (slots[i] < valueCount) {
+						values[slots[i]] = currentValues[i];
+					}
+				}
+				control.applySceneValues(values, 0);
+			}
+			
+			// keep the running channels, in order
+			for (int i = groupStart; i < groupEnd; i++) {
+				if (currentValues[i] != toValues[i] || frameTimeNanos - startTimes[i] < durations[i]) {
+					moveChannel(i, remainingCount++);
+				}
+			}
+			groupStart = groupEnd;
+		}
+		clearChannels(remainingCount);
+		
+		scheduleFrame();
+	}
+}
@@ -0,0 +1,17 @@
+package jp.kshoji.android.view;
+
+/**
+ * Formats the value label drawn at the center of the wheel.
+ * Implementations must not allocate, the method is called on every frame.
+ */
+public interface ValueFormatter {
+	
+	/**
+	 * Writes the text for the value into the buffer.
+	 * 
+	 * @param value the value to format
+	 * @param buffer the destination, 32 characters long
+	 * @return the number of characters written from index 0
+	 */
+	int format(int value, char[] buffer);
+}
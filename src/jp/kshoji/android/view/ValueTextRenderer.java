@@ -0,0 +1,99 @@
+package jp.kshoji.android.view;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * Draws the value label without allocating on each frame.
+ * The text height is measured once for each text length.
+ */
+final class ValueTextRenderer {
+	static final int BUFFER_SIZE = 32;
+	
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private final int[] textHeights = new int[BUFFER_SIZE + 1];
+	private final Rect bounds = new Rect();
+	private Paint textPaint;
+	private ValueFormatter valueFormatter;
+	
+	ValueTextRenderer() {
+		clearTextHeights();
+	}
+	
+	void setTextPaint(Paint textPaint) {
+		this.textPaint = textPaint;
+		clearTextHeights();
+	}
+	
+	void setValueFormatter(ValueFormatter valueFormatter) {
+		this.valueFormatter = valueFormatter;
+		clearTextHeights();
+	}
+	
+	private void clearTextHeights() {
+		for (int i = 0; i < textHeights.length; i++) {
+			textHeights[i] = -1;
+		}
+	}
+	
+	/**
+	 * Draws the value centered at (x / 2, y / 2).
+	 * 
+	 * @param canvas the canvas
+	 * @param x the x
+	 * @param y the y
+	 * @param value the value
+	 */
+	void draw(Canvas canvas, int x, int y, int value) {
+		int length;
+		if (valueFormatter == null) {
+			length = formatInteger(value, buffer);
+		} else {
+			length = valueFormatter.format(value, buffer);
+		}
+		if (length < 0) {
+			length = 0;
+		}
+		if (length > BUFFER_SIZE) {
+			length = BUFFER_SIZE;
+		}
+		
+		int textHeight = textHeights[length];
+		if (textHeight < 0) {
+			textPaint.getTextBounds(buffer, 0, length, bounds);
+			textHeight = bounds.height();
+			textHeights[length] = textHeight;
+		}
+		
+		canvas.drawText(buffer, 0, length, x / 2, y / 2 + (textHeight * 0.3f), textPaint);
+	}
+	
+	/**
+	 * Writes the decimal representation of the value into the buffer.
+	 * 
+	 * @param value the value
+	 * @param buffer the destination, at least 11 characters
+	 * @return the number of characters written from index 0
+	 */
+	static int formatInteger(int value, char[] buffer) {
+		long remaining = value;
+		int position = 0;
+		if (remaining < 0) {
+			buffer[position++] = '-';
+			remaining = -remaining;
+		}
+		
+		int digits = 1;
+		for (long divisor = 10; divisor <= remaining; divisor *= 10) {
+			digits++;
+		}
+		
+		for (int i = position + digits - 1; i >= position; i--) {
+			buffer[i] = (char) ('0' + (remaining % 10));
+			remaining /= 10;
+		}
+		
+		return position + digits;
+	}
+}
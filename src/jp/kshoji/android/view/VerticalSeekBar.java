@@ -1,12 +1,27 @@
 package jp.kshoji.android.view;
 
+import jp.kshoji.android.engine.LinearAxis;
+import jp.kshoji.android.listener.OnProgressBatchListener;
 import android.content.Context;
 import android.graphics.Canvas;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.widget.SeekBar;
 
-public class VerticalSeekBar extends SeekBar {
+public class VerticalSeekBar extends SeekBar implements SceneControl {
+	private OnProgressBatchListener onProgressBatchListener;
+	private DrawMetrics drawMetrics;
+	private final CoalescedValueFeed progressFeed = new CoalescedValueFeed(new CoalescedValueFeed.Target() {
+		
+		@Override
+		public void onValuesCoalesced(int[] values, long[] eventTimes, int sampleCount) {
+			moveThumb(values[sampleCount - 1]);
+			
+			if (onProgressBatchListener != null) {
+				onProgressBatchListener.onProgressBatch(VerticalSeekBar.this, values, eventTimes, sampleCount, 1, false);
+			}
+		}
+	}, 1);
 	
 	public VerticalSeekBar(Context context) {
 		super(context);
@@ -20,6 +35,17 @@ public class VerticalSeekBar extends SeekBar {
 		super(context, attrs, defStyle);
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#onDetachedFromWindow()
+	 */
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		// the shared driver must not keep the view alive
+		ValueAnimationDriver.cancelIfRunning(this);
+	}
+	
 	@Override
 	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
 		super.onSizeChanged(h, w, oldh, oldw);
@@ -33,24 +59,40 @@ public class VerticalSeekBar extends SeekBar {
 	
 	@Override
 	protected synchronized void onDraw(Canvas c) {
+		final DrawMetrics metrics = drawMetrics;
+		if (metrics != null) {
+			metrics.beginDraw();
+		}
+		
 		c.rotate(-90);
 		c.translate(-getHeight(), 0);
 		
 		super.onDraw(c);
+		
+		if (metrics != null) {
+			// the framework drawing is counted as one call
+			metrics.countDrawCalls(1);
+			metrics.endDraw(this);
+		}
 	}
 	
 	@Override
 	public boolean onTouchEvent(MotionEvent event) {
+		DrawMetrics.recordTouch(drawMetrics, event.getEventTime());
+		
 		if (!isEnabled()) {
 			return false;
 		}
 		
+		if (event.getAction() == MotionEvent.ACTION_DOWN) {
+			ValueAnimationDriver.cancelIfRunning(this);
+		}
+		
 		switch (event.getAction()) {
 			case MotionEvent.ACTION_DOWN:
 			case MotionEvent.ACTION_MOVE:
 			case MotionEvent.ACTION_UP:
-				setProgress(getMax() - (int) (getMax() * event.getY() / getHeight()));
-				onSizeChanged(getWidth(), getHeight(), 0, 0);
+				moveThumb(LinearAxis.invertedPositionToValue(event.getY(), getHeight(), getMax()));
 				break;
 			
 			case MotionEvent.ACTION_CANCEL:
@@ -58,4 +100,96 @@ public class VerticalSeekBar extends SeekBar {
 		}
 		return true;
 	}
+	
+	/**
+	 * Sets the progress, and moves the thumb of the rotated seek bar.
+	 * 
+	 * @param progress the progress
+	 */
+	private void moveThumb(int progress) {
+		setProgress(progress);
+		onSizeChanged(getWidth(), getHeight(), 0, 0);
+	}
+	
+	/**
+	 * Posts the progress from any thread.
+	 * The updates are coalesced, and the view is redrawn at most once per frame with the latest progress.
+	 * With an {@link OnProgressBatchListener}, up to 64 values are kept per frame. Further values replace the latest one, and are counted in {@link #getDroppedProgressCount()}.
+	 * 
+	 * @param progress the progress
+	 */
+	public void postProgress(int progress) {
+		progressFeed.post(progress);
+	}
+	
+	/**
+	 * @return the number of posted progress values not delivered to the {@link OnProgressBatchListener} because more than 64 were posted in a frame
+	 */
+	public long getDroppedProgressCount() {
+		return progressFeed.getDroppedSampleCount();
+	}
+	
+	/**
+	 * @param onProgressBatchListener receives every posted progress in one batch per frame, null to deliver only the latest progress
+	 */
+	public void setOnProgressBatchListener(OnProgressBatchListener onProgressBatchListener) {
+		this.onProgressBatchListener = onProgressBatchListener;
+		progressFeed.setHistoryEnabled(onProgressBatchListener != null);
+	}
+	
+	/**
+	 * @param drawMetrics records the drawing cost of this view, null to disable recording
+	 */
+	public void setDrawMetrics(DrawMetrics drawMetrics) {
+		this.drawMetrics = drawMetrics;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#invalidate()
+	 */
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		DrawMetrics.recordInvalidate(drawMetrics);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see android.view.View#invalidate(int, int, int, int)
+	 */
+	@Override
+	public void invalidate(int l, int t, int r, int b) {
+		super.invalidate(l, t, r, b);
+		DrawMetrics.recordInvalidate(drawMetrics);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.SceneControl#getSceneValueCount()
+	 */
+	@Override
+	public int getSceneValueCount() {
+		return 1;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.SceneControl#captureSceneValues(int[], int)
+	 */
+	@Override
+	public void captureSceneValues(int[] snapshot, int offset) {
+		snapshot[offset] = getProgress();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see jp.kshoji.android.view.SceneControl#applySceneValues(int[], int)
+	 */
+	@Override
+	public void applySceneValues(int[] snapshot, int offset) {
+		if (snapshot[offset] != getProgress()) {
+			moveThumb(snapshot[offset]);
+		}
+	}
 }
@@ -0,0 +1,199 @@
+package jp.kshoji.android.engine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/**
+ * Measures the wheel geometry, hit testing and value mapping of the engine package on a plain JVM.
+ * Each case is run for the value ranges from 10 to 100,000, and reports the time and the allocated bytes per operation.
+ * 
+ * Usage: ant -f tests/build.xml benchmark
+ */
+public final class EngineBenchmark {
+	private static final int[] RANGES = { 10, 100, 1000, 10000, 100000 };
+	private static final int TOUCH_COUNT = 4096;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int MEASURED_ROUNDS = 10;
+	private static final long ROUND_NANOS = 100000000L;
+	
+	private final double[] touchX = new double[TOUCH_COUNT];
+	private final double[] touchY = new double[TOUCH_COUNT];
+	private final float[] positions = new float[TOUCH_COUNT];
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	// keeps the results alive, so the measured code is not eliminated
+	private long sink;
+	
+	/**
+	 * A measured operation.
+	 */
+	private abstract static class Case {
+		final String name;
+		
+		Case(String name) {
+			this.name = name;
+		}
+		
+		/**
+		 * @param operations the number of operations to run
+		 * @return a value depending on every result
+		 */
+		abstract long run(int operations);
+	}
+	
+	private EngineBenchmark() {
+		Random random = new Random(0);
+		for (int i = 0; i < TOUCH_COUNT; i++) {
+			touchX[i] = random.nextDouble() * 400.0 - 200.0;
+			touchY[i] = random.nextDouble() * 400.0 - 200.0;
+			positions[i] = random.nextFloat() * 1200f - 100f;
+		}
+	}
+	
+	public static void main(String[] args) {
+		new EngineBenchmark().runAll();
+	}
+	
+	private void runAll() {
+		System.out.println(String.format("%-40s %8s %12s %12s", "case", "range", "ns/op", "bytes/op"));
+		for (int range : RANGES) {
+			for (Case benchmarkCase : createCases(range)) {
+				measure(benchmarkCase, range);
+			}
+		}
+		System.out.println("(sink " + sink + ")");
+	}
+	
+	private Case[] createCases(final int range) {
+		final int max = range - 1;
+		final OvalHitTester hitTester = new OvalHitTester();
+		hitTester.setGeometry(0, max, 120, 300, true);
+		final OvalSegmentTable segmentTable = new OvalSegmentTable();
+		
+		return new Case[] {
+			new Case("OvalHitTester.getProgress") {
+				
+				@Override
+				long run(int operations) {
+					long result = 0;
+					for (int i = 0; i < operations; i++) {
+						final int touch = i & (TOUCH_COUNT - 1);
+						result += hitTester.getProgress(touchX[touch], touchY[touch]);
+					}
+					return result;
+				}
+			},
+			new Case("OvalHitTester.getExactProgress") {
+				
+				@Override
+				long run(int operations) {
+					long result = 0;
+					for (int i = 0; i < operations; i++) {
+						final int touch = i & (TOUCH_COUNT - 1);
+						result += hitTester.getExactProgress(touchX[touch], touchY[touch]);
+					}
+					return result;
+				}
+			},
+			new Case("OvalHitTester.setGeometry") {
+				
+				@Override
+				long run(int operations) {
+					for (int i = 0; i < operations; i++) {
+						hitTester.setGeometry(0, max, 120 + (i & 1), 300, true);
+					}
+					return hitTester.getProgress(1.0, 1.0);
+				}
+			},
+			new Case("OvalSegmentTable.update") {
+				
+				@Override
+				long run(int operations) {
+					long result = 0;
+					for (int i = 0; i < operations; i++) {
+						segmentTable.update(0, max, 120 + (i & 1), 300, (i & 2) == 0, 1, 4);
+						result += segmentTable.getSegmentCount();
+					}
+					return result;
+				}
+			},
+			new Case("ContinuousOvalMath.getAngleStep") {
+				
+				@Override
+				long run(int operations) {
+					long result = 0;
+					for (int i = 0; i < operations; i++) {
+						final int touch = i & (TOUCH_COUNT - 1);
+						result += ContinuousOvalMath.getAngleStep(touchX[touch], touchY[touch], range, true);
+					}
+					return result;
+				}
+			},
+			new Case("LinearAxis.positionToValue") {
+				
+				@Override
+				long run(int operations) {
+					long result = 0;
+					for (int i = 0; i < operations; i++) {
+						result += LinearAxis.positionToValue(positions[i & (TOUCH_COUNT - 1)], 1000, 40, 0, max);
+					}
+					return result;
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Runs the case in rounds of about {@link #ROUND_NANOS}, and prints the fastest round.
+	 * 
+	 * @param benchmarkCase the case
+	 * @param range the number of values
+	 */
+	private void measure(Case benchmarkCase, int range) {
+		// find the number of operations in a round
+		int operations = 1;
+		while (true) {
+			final long start = System.nanoTime();
+			sink += benchmarkCase.run(operations);
+			if (System.nanoTime() - start > ROUND_NANOS / 10 || operations >= (1 << 28)) {
+				break;
+			}
+			operations <<= 1;
+		}
+		operations <<= 3;
+		
+		for (int round = 0; round < WARMUP_ROUNDS; round++) {
+			sink += benchmarkCase.run(operations);
+		}
+		
+		double bestNanosPerOperation = Double.MAX_VALUE;
+		double bytesPerOperation = Double.NaN;
+		for (int round = 0; round < MEASURED_ROUNDS; round++) {
+			final long startBytes = getAllocatedBytes();
+			final long start = System.nanoTime();
+			sink += benchmarkCase.run(operations);
+			final long elapsed = System.nanoTime() - start;
+			final long allocatedBytes = getAllocatedBytes() - startBytes;
+			
+			bestNanosPerOperation = Math.min(bestNanosPerOperation, (double) elapsed / operations);
+			if (startBytes >= 0) {
+				bytesPerOperation = Double.isNaN(bytesPerOperation) ? (double) allocatedBytes / operations : Math.min(bytesPerOperation, (double) allocatedBytes / operations);
+			}
+		}
+		
+		System.out.println(String.format("%-40s %8d %12.2f %12.3f", benchmarkCase.name, range, bestNanosPerOperation, bytesPerOperation));
+	}
+	
+	/**
+	 * @return the bytes allocated by this thread, or -1 if the JVM does not count them
+	 */
+	private long getAllocatedBytes() {
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+			if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+				return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+}
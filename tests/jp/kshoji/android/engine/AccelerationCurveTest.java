@@ -0,0 +1,64 @@
+package jp.kshoji.android.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AccelerationCurveTest {
+	
+	@Test
+	public void gainIsClampedOutsideTheSpeedRange() {
+		AccelerationCurve curve = new AccelerationCurve(100f, 1000f, 0.25f, 4f, 1f);
+		
+		assertEquals(0.25f, curve.getGain(0f), 0f);
+		assertEquals(0.25f, curve.getGain(50f), 0f);
+		assertEquals(0.25f, curve.getGain(-10f), 0f);
+		assertEquals(4f, curve.getGain(1000f), 0f);
+		assertEquals(4f, curve.getGain(100000f), 0f);
+	}
+	
+	@Test
+	public void gainIsMonotonic() {
+		AccelerationCurve curve = new AccelerationCurve(50f, 2000f, 0.5f, 8f, 2f);
+		
+		float previousGain = curve.getGain(0f);
+		for (float speed = 0f; speed <= 2500f; speed += 1f) {
+			final float gain = curve.getGain(speed);
+			assertTrue("speed " + speed, gain >= previousGain);
+			previousGain = gain;
+		}
+	}
+	
+	@Test
+	public void linearCurveMatchesTheFormulaWithinOneTableStep() {
+		final float lowSpeed = 100f;
+		final float highSpeed = 1100f;
+		AccelerationCurve curve = new AccelerationCurve(lowSpeed, highSpeed, 1f, 3f, 1f);
+		final float tableStep = 2f * highSpeed / (AccelerationCurve.TABLE_SIZE - 1) / (highSpeed - lowSpeed);
+		
+		for (float speed = lowSpeed; speed <= highSpeed; speed += 7f) {
+			final float expected = 1f + 2f * (speed - lowSpeed) / (highSpeed - lowSpeed);
+			assertEquals("speed " + speed, expected, curve.getGain(speed), tableStep);
+		}
+	}
+	
+	@Test
+	public void distanceAndTimeAreConvertedToSpeed() {
+		AccelerationCurve curve = new AccelerationCurve(0f, 1000f, 1f, 2f, 1f);
+		
+		assertEquals(curve.getGain(500f), curve.getGain(5f, 10L), 0f);
+		// a zero interval is treated as one millisecond
+		assertEquals(curve.getGain(3000f), curve.getGain(3f, 0L), 0f);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsReversedSpeeds() {
+		new AccelerationCurve(100f, 100f, 1f, 2f, 1f);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNonPositiveExponent() {
+		new AccelerationCurve(0f, 100f, 1f, 2f, 0f);
+	}
+}
@@ -0,0 +1,130 @@
+package jp.kshoji.android.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CompactStateTest {
+	
+	@Test
+	public void fieldsRoundTrip() {
+		CompactStateWriter writer = new CompactStateWriter();
+		writer.beginRecord(3);
+		writer.writeInt(-123456, 16);
+		writer.writeInt(Integer.MIN_VALUE, Integer.MAX_VALUE);
+		writer.writeLong(Long.MAX_VALUE, -1L);
+		writer.writeBoolean(true, false);
+		writer.writeBoolean(false, false);
+		writer.writeFloat(0.1f, 1f);
+		writer.writeFloat(Float.NaN, 0f);
+		writer.endRecord();
+		
+		CompactStateReader reader = new CompactStateReader(writer.toByteArray());
+		assertEquals(3, reader.beginRecord());
+		assertEquals(-123456, reader.readInt(16));
+		assertEquals(Integer.MIN_VALUE, reader.readInt(Integer.MAX_VALUE));
+		assertEquals(Long.MAX_VALUE, reader.readLong(-1L));
+		assertTrue(reader.readBoolean(false));
+		assertFalse(reader.readBoolean(false));
+		assertEquals(0.1f, reader.readFloat(1f), 0f);
+		assertTrue(Float.isNaN(reader.readFloat(0f)));
+		assertFalse(reader.hasRemaining());
+		reader.endRecord();
+		assertFalse(reader.hasRemaining());
+	}
+	
+	@Test
+	public void defaultValuesTakeOneByteEach() {
+		CompactStateWriter writer = new CompactStateWriter();
+		writer.writeInt(16, 16);
+		writer.writeLong(100L, 100L);
+		writer.writeBoolean(true, true);
+		writer.writeFloat(270f, 270f);
+		
+		assertEquals(4, writer.getLength());
+	}
+	
+	@Test
+	public void newerReaderGetsDefaultsFromOlderRecord() {
+		CompactStateWriter writer = new CompactStateWriter();
+		writer.beginRecord(1);
+		writer.writeInt(5, 0);
+		writer.endRecord();
+		writer.writeInt(42, 0);
+		
+		CompactStateReader reader = new CompactStateReader(writer.toByteArray());
+		reader.beginRecord();
+		assertEquals(5, reader.readInt(0));
+		assertEquals(7, reader.readInt(7));
+		assertTrue(reader.readBoolean(true));
+		reader.endRecord();
+		assertEquals(42, reader.readInt(0));
+	}
+	
+	@Test
+	public void olderReaderSkipsUnknownFields() {
+		CompactStateWriter writer = new CompactStateWriter();
+		writer.beginRecord(2);
+		writer.writeInt(1, 0);
+		writer.writeLong(1L << 40, 0L);
+		writer.writeFloat(1.5f, 0f);
+		writer.endRecord();
+		writer.beginRecord(1);
+		writer.writeInt(-9, 0);
+		writer.endRecord();
+		
+		CompactStateReader reader = new CompactStateReader(writer.toByteArray());
+		reader.beginRecord();
+		assertEquals(1, reader.readInt(0));
+		reader.endRecord();
+		reader.skipRecord();
+		assertFalse(reader.hasRemaining());
+	}
+	
+	@Test
+	public void largeRecordLengthPrefixIsInserted() {
+		CompactStateWriter writer = new CompactStateWriter();
+		writer.beginRecord(1);
+		for (int i = 0; i < 1000; i++) {
+			writer.writeInt(i * 1000, 0);
+		}
+		writer.endRecord();
+		
+		CompactStateReader reader = new CompactStateReader(writer.toByteArray());
+		reader.beginRecord();
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i * 1000, reader.readInt(0));
+		}
+		assertFalse(reader.hasRemaining());
+	}
+	
+	@Test
+	public void resetDiscardsTheData() {
+		CompactStateWriter writer = new CompactStateWriter();
+		writer.writeInt(1000, 0);
+		writer.reset();
+		
+		assertEquals(0, writer.getLength());
+		assertEquals(0, writer.toByteArray().length);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void truncatedRecordIsRejected() {
+		CompactStateWriter writer = new CompactStateWriter();
+		writer.beginRecord(1);
+		writer.writeInt(300, 0);
+		writer.endRecord();
+		final byte[] data = writer.toByteArray();
+		
+		byte[] truncated = new byte[data.length - 1];
+		System.arraycopy(data, 0, truncated, 0, truncated.length);
+		new CompactStateReader(truncated).beginRecord();
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void endWithoutBeginIsRejected() {
+		new CompactStateWriter().endRecord();
+	}
+}
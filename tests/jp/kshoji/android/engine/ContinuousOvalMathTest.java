@@ -0,0 +1,72 @@
+package jp.kshoji.android.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ContinuousOvalMathTest {
+	
+	@Test
+	public void matchesTheBaselineOnTheUpperHalf() {
+		Random random = new Random(30);
+		for (int touch = 0; touch < 100000; touch++) {
+			final int stepsPerTurn = 1 + random.nextInt(256);
+			final double x = random.nextDouble() * 2.0 - 1.0;
+			final double y = random.nextDouble();
+			
+			// the baseline truncated the unit toward zero, which is the same as floor where the unit is positive
+			final int expected = (int) (stepsPerTurn * (Math.atan2(y, x) / (2.0 * Math.PI))) % stepsPerTurn;
+			assertEquals(expected, ContinuousOvalMath.getAngleStep(x, y, stepsPerTurn, true));
+		}
+	}
+	
+	@Test
+	public void stepsAreInRange() {
+		Random random = new Random(31);
+		for (int touch = 0; touch < 100000; touch++) {
+			final int stepsPerTurn = 1 + random.nextInt(256);
+			final double x = random.nextGaussian();
+			final double y = random.nextGaussian();
+			
+			final int clockwiseStep = ContinuousOvalMath.getAngleStep(x, y, stepsPerTurn, true);
+			final int counterClockwiseStep = ContinuousOvalMath.getAngleStep(x, y, stepsPerTurn, false);
+			assertTrue(clockwiseStep >= 0 && clockwiseStep < stepsPerTurn);
+			assertTrue(counterClockwiseStep >= 0 && counterClockwiseStep < stepsPerTurn);
+		}
+	}
+	
+	@Test
+	public void everyStepHasTheSameWidthInBothDirections() {
+		final int stepsPerTurn = 64;
+		final int samplesPerStep = 100;
+		int[] clockwiseCounts = new int[stepsPerTurn];
+		int[] counterClockwiseCounts = new int[stepsPerTurn];
+		
+		for (int i = 0; i < stepsPerTurn * samplesPerStep; i++) {
+			// the middle of each sample interval, never on a step boundary
+			final double angle = (i + 0.5) * 2.0 * Math.PI / (stepsPerTurn * samplesPerStep);
+			clockwiseCounts[ContinuousOvalMath.getAngleStep(Math.cos(angle), Math.sin(angle), stepsPerTurn, true)]++;
+			counterClockwiseCounts[ContinuousOvalMath.getAngleStep(Math.cos(angle), Math.sin(angle), stepsPerTurn, false)]++;
+		}
+		
+		for (int step = 0; step < stepsPerTurn; step++) {
+			assertEquals(samplesPerStep, clockwiseCounts[step]);
+			assertEquals(samplesPerStep, counterClockwiseCounts[step]);
+		}
+	}
+	
+	@Test
+	public void directionsMirrorEachOther() {
+		final int stepsPerTurn = 100;
+		for (int i = 0; i < 1000; i++) {
+			final double angle = (i + 0.5) * 2.0 * Math.PI / 1000;
+			final int clockwiseStep = ContinuousOvalMath.getAngleStep(Math.cos(angle), Math.sin(angle), stepsPerTurn, true);
+			final int counterClockwiseStep = ContinuousOvalMath.getAngleStep(Math.cos(angle), -Math.sin(angle), stepsPerTurn, false);
+			
+			assertEquals(clockwiseStep, counterClockwiseStep);
+		}
+	}
+}
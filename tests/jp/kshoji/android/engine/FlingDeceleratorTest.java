@@ -0,0 +1,79 @@
+package jp.kshoji.android.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FlingDeceleratorTest {
+	private static final long FRAME_NANOS = 16666667L;
+	
+	@Test
+	public void travelConvergesToVelocityOverFriction() {
+		FlingDecelerator decelerator = new FlingDecelerator();
+		decelerator.setFriction(4.0);
+		decelerator.setMinVelocity(0.001);
+		decelerator.start(1000.0, 0L);
+		
+		long time = 0L;
+		while (!decelerator.isFinished()) {
+			time += FRAME_NANOS;
+			decelerator.computePosition(time);
+		}
+		assertEquals(250.0, decelerator.getPosition(), 0.01);
+	}
+	
+	@Test
+	public void positionDoesNotDependOnTheFrameRate() {
+		FlingDecelerator perFrame = new FlingDecelerator();
+		FlingDecelerator once = new FlingDecelerator();
+		perFrame.start(-600.0, 0L);
+		once.start(-600.0, 0L);
+		
+		for (int i = 1; i <= 30; i++) {
+			perFrame.computePosition(i * FRAME_NANOS);
+		}
+		once.computePosition(30 * FRAME_NANOS);
+		
+		assertEquals(once.getPosition(), perFrame.getPosition(), 1e-9);
+		assertEquals(once.getVelocity(), perFrame.getVelocity(), 1e-9);
+	}
+	
+	@Test
+	public void slowStartIsFinished() {
+		FlingDecelerator decelerator = new FlingDecelerator();
+		decelerator.setMinVelocity(5.0);
+		decelerator.start(4.0, 0L);
+		
+		assertTrue(decelerator.isFinished());
+		assertFalse(decelerator.computePosition(FRAME_NANOS));
+		assertEquals(0.0, decelerator.getPosition(), 0.0);
+	}
+	
+	@Test
+	public void abortStopsAtTheCurrentPosition() {
+		FlingDecelerator decelerator = new FlingDecelerator();
+		decelerator.start(100.0, 0L);
+		decelerator.computePosition(FRAME_NANOS);
+		final double position = decelerator.getPosition();
+		
+		decelerator.abort();
+		assertFalse(decelerator.computePosition(2 * FRAME_NANOS));
+		assertEquals(position, decelerator.getPosition(), 0.0);
+		assertEquals(0.0, decelerator.getVelocity(), 0.0);
+	}
+	
+	@Test
+	public void sameTimeDoesNotMove() {
+		FlingDecelerator decelerator = new FlingDecelerator();
+		decelerator.start(100.0, 1000L);
+		
+		assertFalse(decelerator.computePosition(1000L));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNonPositiveFriction() {
+		new FlingDecelerator().setFriction(0.0);
+	}
+}
@@ -0,0 +1,69 @@
+package jp.kshoji.android.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LinearAxisTest {
+	
+	@Test
+	public void positionToValueMatchesTheBaseline() {
+		Random random = new Random(40);
+		for (int touch = 0; touch < 100000; touch++) {
+			final int length = 20 + random.nextInt(2000);
+			final int pointerSize = random.nextInt(length - 1);
+			final int max = random.nextInt(1000);
+			final int min = 0;
+			final float position = random.nextFloat() * (length + 200) - 100;
+			
+			// BiaxialSeekBar before the extraction
+			float expected = position - pointerSize / 2;
+			expected = expected * max / (length - pointerSize);
+			if (expected > max) {
+				expected = max;
+			}
+			if (expected < min) {
+				expected = min;
+			}
+			
+			assertEquals((int) expected, LinearAxis.positionToValue(position, length, pointerSize, min, max));
+		}
+	}
+	
+	@Test
+	public void valueToPositionMatchesTheBaseline() {
+		Random random = new Random(41);
+		for (int i = 0; i < 100000; i++) {
+			final int length = 20 + random.nextInt(2000);
+			final int pointerSize = random.nextInt(length - 1);
+			final int min = random.nextInt(10);
+			final int max = min + random.nextInt(1000);
+			final int value = min + random.nextInt(max - min + 1);
+			
+			assertEquals(((float) length - pointerSize) * value / (1 + max - min), LinearAxis.valueToPosition(value, length, pointerSize, min, max), 0f);
+		}
+	}
+	
+	@Test
+	public void invertedPositionToValueMatchesTheBaseline() {
+		Random random = new Random(42);
+		for (int touch = 0; touch < 100000; touch++) {
+			final int length = 1 + random.nextInt(2000);
+			final int max = random.nextInt(1000);
+			final float position = random.nextFloat() * length;
+			
+			// VerticalSeekBar before the extraction
+			assertEquals(max - (int) (max * position / length), LinearAxis.invertedPositionToValue(position, length, max));
+		}
+	}
+	
+	@Test
+	public void endsMapToTheRange() {
+		assertEquals(0, LinearAxis.positionToValue(-50f, 200, 20, 0, 100));
+		assertEquals(100, LinearAxis.positionToValue(250f, 200, 20, 0, 100));
+		assertEquals(100, LinearAxis.invertedPositionToValue(0f, 200, 100));
+		assertEquals(0, LinearAxis.invertedPositionToValue(200f, 200, 100));
+	}
+}
@@ -0,0 +1,144 @@
+package jp.kshoji.android.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class OvalHitTesterTest {
+	
+	/**
+	 * The mapping of OvalSeekBar before the boundary table, kept as the reference.
+	 */
+	private static int getClickedProgress(double x, double y, int min, int max, int wheelZeroAngle, int wheelWholeAngle, boolean isWheelDirectionClockwise) {
+		// unit: 0.0 to 1.0
+		double unit;
+		
+		// angle is radian
+		double angle;
+		
+		if (isWheelDirectionClockwise) {
+			angle = Math.atan2(y, x) - Math.PI * wheelZeroAngle / 180d + Math.PI * 5.0 + Math.PI * (360.0 - wheelWholeAngle) / 360.0;
+			while (angle > Math.PI) {
+				angle -= Math.PI * 2.0;
+			}
+			unit = angle * 360.0 / wheelWholeAngle / (2.0 * Math.PI) + 0.5;
+		} else {
+			angle = Math.atan2(y, x) - Math.PI * wheelZeroAngle / 180d + Math.PI * 5.0 - Math.PI * (360.0 - wheelWholeAngle) / 360.0;
+			while (angle > Math.PI) {
+				angle -= Math.PI * 2.0;
+			}
+			unit = 0.5 - angle * 360.0 / wheelWholeAngle / (2.0 * Math.PI);
+		}
+		
+		int result = (int) Math.floor((1.0 + max - min) * unit + min);
+		if (result > max) {
+			result = max;
+		}
+		if (result < min) {
+			result = min;
+		}
+		
+		return result;
+	}
+	
+	@Test
+	public void matchesTheBaselineOnRandomTouches() {
+		Random random = new Random(10);
+		OvalHitTester hitTester = new OvalHitTester();
+		
+		for (int geometry = 0; geometry < 200; geometry++) {
+			final int min = random.nextInt(21) - 10;
+			final int max = min + random.nextInt(geometry % 4 == 0 ? 2000 : 130);
+			final int wheelZeroAngle = random.nextInt(720) - 360;
+			final int wheelWholeAngle = 1 + random.nextInt(360);
+			final boolean isWheelDirectionClockwise = random.nextBoolean();
+			hitTester.setGeometry(min, max, wheelZeroAngle, wheelWholeAngle, isWheelDirectionClockwise);
+			
+			for (int touch = 0; touch < 2000; touch++) {
+				final double x = random.nextDouble() * 1000.0 - 500.0;
+				final double y = random.nextDouble() * 1000.0 - 500.0;
+				final int expected = getClickedProgress(x, y, min, max, wheelZeroAngle, wheelWholeAngle, isWheelDirectionClockwise);
+				
+				assertEquals(expected, hitTester.getProgress(x, y));
+				assertEquals(expected, hitTester.getExactProgress(x, y));
+			}
+		}
+	}
+	
+	@Test
+	public void matchesTheBaselineNextToBoundaries() {
+		Random random = new Random(11);
+		OvalHitTester hitTester = new OvalHitTester();
+		
+		for (int geometry = 0; geometry < 100; geometry++) {
+			final int min = 0;
+			final int max = random.nextInt(200);
+			final int wheelZeroAngle = random.nextInt(360);
+			final int wheelWholeAngle = 1 + random.nextInt(360);
+			final boolean isWheelDirectionClockwise = random.nextBoolean();
+			hitTester.setGeometry(min, max, wheelZeroAngle, wheelWholeAngle, isWheelDirectionClockwise);
+			
+			// touches just around the angle where each value starts
+			for (int value = min; value <= max + 1; value++) {
+				final double unit = (double) (value - min) / (1 + max - min);
+				double degree = (unit - 0.5) * wheelWholeAngle;
+				if (!isWheelDirectionClockwise) {
+					degree = -degree;
+				}
+				final double center = Math.toRadians(degree) + Math.toRadians(wheelZeroAngle) - Math.PI * (isWheelDirectionClockwise ? 5.0 + (360.0 - wheelWholeAngle) / 360.0 : 5.0 - (360.0 - wheelWholeAngle) / 360.0);
+				for (int k = -3; k <= 3; k++) {
+					final double angle = center + k * 1e-7;
+					final double radius = 1.0 + random.nextDouble() * 500.0;
+					final double x = Math.cos(angle) * radius;
+					final double y = Math.sin(angle) * radius;
+					
+					assertEquals(getClickedProgress(x, y, min, max, wheelZeroAngle, wheelWholeAngle, isWheelDirectionClockwise), hitTester.getProgress(x, y));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void largeRangesUseTheExactComputation() {
+		Random random = new Random(12);
+		OvalHitTester hitTester = new OvalHitTester();
+		hitTester.setGeometry(0, OvalHitTester.MAX_TABLE_SIZE * 4, 90, 300, true);
+		
+		for (int touch = 0; touch < 10000; touch++) {
+			final double x = random.nextDouble() * 2.0 - 1.0;
+			final double y = random.nextDouble() * 2.0 - 1.0;
+			
+			assertEquals(getClickedProgress(x, y, 0, OvalHitTester.MAX_TABLE_SIZE * 4, 90, 300, true), hitTester.getProgress(x, y));
+		}
+	}
+	
+	@Test
+	public void unitFollowsTheProgress() {
+		Random random = new Random(13);
+		OvalHitTester hitTester = new OvalHitTester();
+		hitTester.setGeometry(0, 99, 120, 300, false);
+		
+		for (int touch = 0; touch < 10000; touch++) {
+			final double x = random.nextDouble() * 2.0 - 1.0;
+			final double y = random.nextDouble() * 2.0 - 1.0;
+			final double unit = hitTester.getUnit(x, y);
+			
+			assertEquals(Math.min((int) Math.floor(unit * 100.0), 99), hitTester.getExactProgress(x, y));
+		}
+	}
+	
+	@Test
+	public void fastAtan2IsWithinTheTolerance() {
+		Random random = new Random(14);
+		for (int i = 0; i < 100000; i++) {
+			final double x = random.nextGaussian();
+			final double y = random.nextGaussian();
+			
+			assertEquals(Math.atan2(y, x), OvalHitTester.fastAtan2(y, x), 2e-5);
+		}
+		assertEquals(Math.PI, OvalHitTester.fastAtan2(0.0, -1.0), 0.0);
+		assertEquals(0.0, OvalHitTester.fastAtan2(0.0, 0.0), 0.0);
+	}
+}
@@ -0,0 +1,87 @@
+package jp.kshoji.android.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class OvalSegmentTableTest {
+	
+	@Test
+	public void clockwiseAnglesMatchTheBaseline() {
+		Random random = new Random(20);
+		OvalSegmentTable table = new OvalSegmentTable();
+		
+		for (int geometry = 0; geometry < 500; geometry++) {
+			final int min = random.nextInt(21) - 10;
+			final int max = min + random.nextInt(200);
+			final int wheelZeroAngle = random.nextInt(720) - 360;
+			final int wheelWholeAngle = 1 + random.nextInt(360);
+			final int separatorAngle = random.nextInt(3);
+			final int pointerSizeAngle = random.nextInt(20);
+			table.update(min, max, wheelZeroAngle, wheelWholeAngle, true, separatorAngle, pointerSizeAngle);
+			
+			assertEquals(max - min + 1, table.getSegmentCount());
+			for (int i = min; i <= max; i++) {
+				// the arcs drawn by OvalSeekBar before the segment table
+				float minAngle = wheelZeroAngle;
+				double pointerAngle = wheelWholeAngle / (1.0 + max - min);
+				final float startAngle = (float) (minAngle + pointerAngle * (i - min));
+				final float pointerStartAngle = (float) (minAngle + pointerAngle * (i - min) + pointerAngle / 2 - pointerSizeAngle / 2);
+				
+				assertEquals(startAngle, table.getStartAngles()[i - min], 0f);
+				assertEquals((float) pointerAngle - separatorAngle, table.getSweepAngle(), 0f);
+				assertEquals(pointerStartAngle, table.getStartAngles()[i - min] + table.getPointerStartAngleOffset(), 1e-3f);
+				assertEquals(pointerSizeAngle, table.getPointerSweepAngle(), 0f);
+			}
+		}
+	}
+	
+	@Test
+	public void counterClockwiseAnglesMatchTheBaseline() {
+		Random random = new Random(21);
+		OvalSegmentTable table = new OvalSegmentTable();
+		
+		for (int geometry = 0; geometry < 500; geometry++) {
+			final int min = random.nextInt(21) - 10;
+			final int max = min + random.nextInt(200);
+			final int wheelZeroAngle = random.nextInt(720) - 360;
+			final int wheelWholeAngle = 1 + random.nextInt(360);
+			final int separatorAngle = random.nextInt(3);
+			table.update(min, max, wheelZeroAngle, wheelWholeAngle, false, separatorAngle, random.nextInt(20));
+			
+			for (int i = min; i <= max; i++) {
+				float minAngle = wheelZeroAngle + wheelWholeAngle;
+				double pointerAngle = wheelWholeAngle / (1.0 + max - min);
+				final float startAngle = (float) (minAngle + pointerAngle * (max - i));
+				
+				assertEquals(startAngle, table.getStartAngles()[i - min], 0f);
+				// the pointer covers the whole segment
+				assertEquals(startAngle, table.getStartAngles()[i - min] + table.getPointerStartAngleOffset(), 0f);
+				assertEquals((float) pointerAngle - separatorAngle, table.getPointerSweepAngle(), 0f);
+			}
+		}
+	}
+	
+	@Test
+	public void runCoversItsSegmentsInBothDirections() {
+		OvalSegmentTable table = new OvalSegmentTable();
+		
+		table.update(0, 9, 90, 300, true, 0, 4);
+		assertEquals(90f, table.getRunStartAngle(0, 4), 0f);
+		assertEquals(150f, table.getRunSweepAngle(0, 4), 1e-4f);
+		
+		table.update(0, 9, 90, 300, false, 0, 4);
+		assertEquals(540f, table.getRunStartAngle(0, 4), 1e-4f);
+		assertEquals(150f, table.getRunSweepAngle(0, 4), 1e-4f);
+	}
+	
+	@Test
+	public void emptyRangeHasOneSegment() {
+		OvalSegmentTable table = new OvalSegmentTable();
+		table.update(5, 3, 0, 360, true, 0, 0);
+		
+		assertEquals(1, table.getSegmentCount());
+	}
+}
@@ -0,0 +1,68 @@
+package jp.kshoji.android.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SampleRingBufferTest {
+	
+	@Test
+	public void keepsSamplesInOrderBeforeWrapping() {
+		SampleRingBuffer buffer = new SampleRingBuffer(4);
+		buffer.add(10);
+		buffer.add(20);
+		
+		assertEquals(2, buffer.getCount());
+		assertEquals(10, buffer.get(0));
+		assertEquals(20, buffer.get(1));
+		assertEquals(20, buffer.getLatest());
+	}
+	
+	@Test
+	public void wrapAroundKeepsTheLatestSamples() {
+		SampleRingBuffer buffer = new SampleRingBuffer(3);
+		for (long sample = 1; sample <= 10; sample++) {
+			buffer.add(sample);
+		}
+		
+		assertEquals(3, buffer.getCount());
+		assertEquals(8, buffer.get(0));
+		assertEquals(9, buffer.get(1));
+		assertEquals(10, buffer.get(2));
+		
+		long[] copy = new long[5];
+		assertEquals(3, buffer.copyTo(copy));
+		assertEquals(8, copy[0]);
+		assertEquals(10, copy[2]);
+	}
+	
+	@Test
+	public void copyIsLimitedByTheDestination() {
+		SampleRingBuffer buffer = new SampleRingBuffer(8);
+		for (long sample = 0; sample < 8; sample++) {
+			buffer.add(sample);
+		}
+		
+		long[] copy = new long[2];
+		assertEquals(2, buffer.copyTo(copy));
+		assertEquals(0, copy[0]);
+		assertEquals(1, copy[1]);
+	}
+	
+	@Test
+	public void emptyLatestIsZero() {
+		assertEquals(0, new SampleRingBuffer(1).getLatest());
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rejectsIndexBeyondCount() {
+		SampleRingBuffer buffer = new SampleRingBuffer(4);
+		buffer.add(1);
+		buffer.get(1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsZeroCapacity() {
+		new SampleRingBuffer(0);
+	}
+}
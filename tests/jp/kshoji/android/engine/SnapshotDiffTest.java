@@ -0,0 +1,68 @@
+package jp.kshoji.android.engine;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SnapshotDiffTest {
+	
+	@Test
+	public void listsChangedSlotsInOrder() {
+		final int[] from = { 1, 2, 3, 4, 5, 6 };
+		final int[] to = { 1, 0, 3, 4, 9, 0 };
+		int[] changedSlots = new int[from.length];
+		
+		assertEquals(3, SnapshotDiff.diff(from, to, from.length, changedSlots));
+		assertEquals(1, changedSlots[0]);
+		assertEquals(4, changedSlots[1]);
+		assertEquals(5, changedSlots[2]);
+	}
+	
+	@Test
+	public void comparesOnlyTheGivenLength() {
+		final int[] from = { 1, 2, 3 };
+		final int[] to = { 1, 2, 4 };
+		int[] changedSlots = new int[3];
+		
+		assertEquals(0, SnapshotDiff.diff(from, to, 2, changedSlots));
+		assertArrayEquals(new int[3], changedSlots);
+	}
+	
+	@Test
+	public void findsTheRangeOfEverySlot() {
+		// one, two, none, three and one slots
+		final int[] offsets = { 0, 1, 3, 3, 6, 7 };
+		final int[] expected = { 0, 1, 1, 3, 3, 3, 4 };
+		
+		for (int slot = 0; slot < expected.length; slot++) {
+			assertEquals("slot " + slot, expected[slot], SnapshotDiff.findRange(offsets, 5, slot));
+		}
+		assertEquals(-1, SnapshotDiff.findRange(offsets, 5, -1));
+		assertEquals(-1, SnapshotDiff.findRange(offsets, 5, 7));
+	}
+	
+	@Test
+	public void findRangeMatchesLinearSearch() {
+		Random random = new Random(7);
+		for (int trial = 0; trial < 100; trial++) {
+			final int rangeCount = 1 + random.nextInt(50);
+			int[] offsets = new int[rangeCount + 1];
+			for (int i = 1; i <= rangeCount; i++) {
+				offsets[i] = offsets[i - 1] + random.nextInt(4);
+			}
+			
+			for (int slot = 0; slot < offsets[rangeCount]; slot++) {
+				int expected = -1;
+				for (int range = 0; range < rangeCount; range++) {
+					if (offsets[range] <= slot && slot < offsets[range + 1]) {
+						expected = range;
+					}
+				}
+				assertEquals(expected, SnapshotDiff.findRange(offsets, rangeCount, slot));
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package jp.kshoji.android.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TurnAccumulatorTest {
+	
+	@Test
+	public void unwrapsAcrossZero() {
+		TurnAccumulator accumulator = new TurnAccumulator(100);
+		accumulator.begin(95);
+		
+		assertEquals(10, accumulator.update(5));
+		assertEquals(-10, accumulator.update(95));
+		assertEquals(0, accumulator.getPosition());
+	}
+	
+	@Test
+	public void firstUpdateDoesNotMove() {
+		TurnAccumulator accumulator = new TurnAccumulator(64);
+		
+		assertEquals(0, accumulator.update(30));
+		assertEquals(2, accumulator.update(32));
+		assertEquals(2, accumulator.getPosition());
+	}
+	
+	@Test
+	public void staysExactOverManyTurns() {
+		final int stepsPerTurn = 360;
+		TurnAccumulator accumulator = new TurnAccumulator(stepsPerTurn);
+		Random random = new Random(1);
+		
+		long expected = 0;
+		int angle = 0;
+		accumulator.begin(angle);
+		for (int i = 0; i < 100000; i++) {
+			// less than half a turn per sample
+			final int delta = random.nextInt(stepsPerTurn - 1) - (stepsPerTurn / 2 - 1);
+			expected += delta;
+			angle = ((angle + delta) % stepsPerTurn + stepsPerTurn) % stepsPerTurn;
+			accumulator.update(angle);
+		}
+		assertEquals(expected, accumulator.getPosition());
+	}
+	
+	@Test
+	public void revolutionsRoundTowardNegativeInfinity() {
+		TurnAccumulator accumulator = new TurnAccumulator(10);
+		
+		accumulator.setPosition(25);
+		assertEquals(2, accumulator.getRevolutions());
+		accumulator.setPosition(-1);
+		assertEquals(-1, accumulator.getRevolutions());
+		accumulator.setPosition(-10);
+		assertEquals(-1, accumulator.getRevolutions());
+		accumulator.setPosition(-11);
+		assertEquals(-2, accumulator.getRevolutions());
+	}
+	
+	@Test
+	public void moveKeepsTheReferenceAngle() {
+		TurnAccumulator accumulator = new TurnAccumulator(100);
+		accumulator.begin(10);
+		accumulator.move(250);
+		
+		assertEquals(5, accumulator.update(15));
+		assertEquals(255, accumulator.getPosition());
+	}
+	
+	@Test
+	public void changingTheResolutionRestartsFromTheNextAngle() {
+		TurnAccumulator accumulator = new TurnAccumulator(100);
+		accumulator.begin(10);
+		accumulator.setStepsPerTurn(200);
+		
+		assertEquals(0, accumulator.update(150));
+		assertEquals(0, accumulator.getPosition());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsZeroSteps() {
+		new TurnAccumulator(0);
+	}
+}